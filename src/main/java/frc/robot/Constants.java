@@ -13,6 +13,8 @@
 
 package frc.robot;
 
+import java.util.Arrays;
+
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
  * constants. This class should not be used for any other purpose. All constants should be declared
@@ -22,7 +24,8 @@ package frc.robot;
  * constants are needed, to reduce verbosity.
  */
 public final class Constants {
-  public static final Mode currentMode = Mode.REAL;
+  // Can be overridden with -Drobot.mode, e.g. by the replay regression test for the JVMs it starts
+  public static final Mode currentMode = Mode.fromProperty("robot.mode", Mode.REAL);
 
   public static enum Mode {
     /** Running on a real robot. */
@@ -32,9 +35,27 @@ public final class Constants {
     SIM,
 
     /** Replaying from a log file. */
-    REPLAY
+    REPLAY;
+
+    /** Returns the mode named by the given system property, or the default if it isn't set. */
+    private static Mode fromProperty(String property, Mode defaultMode) {
+      String name = System.getProperty(property);
+      if (name == null) {
+        return defaultMode;
+      }
+      try {
+        return valueOf(name);
+      } catch (IllegalArgumentException e) {
+        String expected = Arrays.toString(values());
+        throw new IllegalStateException(
+            "Unknown " + property + " \"" + name + "\", expected one of " + expected, e);
+      }
+    }
   }
 
+  /** Publishes tunable numbers to NetworkTables so they can be changed without a redeploy. */
+  public static final boolean tuningMode = true;
+
   public static final double armAppliedVolts = 12.0;
   public static final double armDeadZone = 3;
 }
@@ -13,9 +13,12 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import java.io.File;
+import frc.robot.util.BootTimer;
+import frc.robot.util.LoopGovernor;
+import frc.robot.util.TunableParameters;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
@@ -32,6 +35,8 @@ import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 public class Robot extends LoggedRobot {
   private Command autonomousCommand;
   private RobotContainer robotContainer;
+  private boolean deferredInitComplete = false;
+  private boolean firstEnableRecorded = false;
 
   /**
    * This function is run when the robot is first started up and should be used for any
@@ -39,6 +44,8 @@ public class Robot extends LoggedRobot {
    */
   @Override
   public void robotInit() {
+    BootTimer.mark("RobotInitStart");
+
     // Record metadata
     Logger.recordMetadata("ProjectName", BuildConstants.MAVEN_NAME);
     Logger.recordMetadata("BuildDate", BuildConstants.BUILD_DATE);
@@ -56,23 +63,20 @@ public class Robot extends LoggedRobot {
         Logger.recordMetadata("GitDirty", "Unknown");
         break;
     }
-    // * Create log directory and files and stuff idk really */
-    String LOG_DIRECTORY = "U/logs";
-    var directory = new File(LOG_DIRECTORY);
-    if (!directory.exists()) {
-      directory.mkdir();
-    }
-    // Set up data receivers & replay source
+    // Set up data receivers & replay source. The WPILOG writer creates the log directory itself
+    // when the logger starts, so there is no need to touch the USB stick here.
     switch (Constants.currentMode) {
       case REAL:
         // Running on a real robot, log to a USB stick ("/U/logs")
-        Logger.addDataReceiver(new WPILOGWriter(LOG_DIRECTORY));
-        Logger.addDataReceiver(new NT4Publisher());
+        Logger.addDataReceiver(new WPILOGWriter("U/logs"));
+        Logger.addDataReceiver(LoopGovernor.throttle(new NT4Publisher()));
         break;
 
       case SIM:
-        // Running a physics simulator, log to NT
-        Logger.addDataReceiver(new NT4Publisher());
+        // Running a physics simulator, log to NT and to "logs", where sim sessions can be picked
+        // up for the replay regression corpus
+        Logger.addDataReceiver(new WPILOGWriter("logs"));
+        Logger.addDataReceiver(LoopGovernor.throttle(new NT4Publisher()));
         break;
 
       case REPLAY:
@@ -89,21 +93,42 @@ public class Robot extends LoggedRobot {
 
     // Start AdvantageKit logger
     Logger.start();
+    BootTimer.mark("LoggerStarted");
 
-    // Instantiate our RobotContainer. This will perform all our button bindings,
-    // and put our autonomous chooser on the dashboard.
+    // Instantiate our RobotContainer. This only brings up the drive so that the robot is
+    // drivable as soon as possible, everything else is built once the arm IO has started.
     robotContainer = new RobotContainer();
+    BootTimer.mark("DriveCreated");
   }
 
   /** This function is called periodically during all modes. */
   @Override
   public void robotPeriodic() {
+    LoopGovernor.startCycle();
+
+    // Finish bringing up the non-critical subsystems once their IO has started in the background
+    if (!deferredInitComplete && robotContainer.pollDeferredInit()) {
+      deferredInitComplete = true;
+      BootTimer.mark("DeferredInitComplete");
+      LoopGovernor.startMonitoring();
+    }
+    if (!firstEnableRecorded && DriverStation.isEnabled()) {
+      firstEnableRecorded = true;
+      BootTimer.mark("FirstEnabled");
+    }
+
+    // Pick up any gains changed from the dashboard before anything uses them
+    TunableParameters.periodic();
+
     // Runs the Scheduler. This is responsible for polling buttons, adding
     // newly-scheduled commands, running already-scheduled commands, removing
     // finished or interrupted commands, and running subsystem periodic() methods.
     // This must be called from the robot's periodic block in order for anything in
     // the Command-based framework to work.
     CommandScheduler.getInstance().run();
+
+    BootTimer.flush();
+    LoopGovernor.endCycle();
   }
 
   /** This function is called once when the robot is disabled. */
@@ -117,6 +142,8 @@ public class Robot extends LoggedRobot {
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    robotContainer.resetMatchEnergy();
+
     /*
     autonomousCommand = robotContainer.getAutonomousCommand();
 
@@ -13,20 +13,32 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID;
 // import edu.wpi.first.wpilibj.Relay;
 // import edu.wpi.first.wpilibj.Relay.Value;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.Commands;
-import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.subsystems.arm.Arm;
 import frc.robot.subsystems.arm.ArmIO;
 import frc.robot.subsystems.arm.ArmIOReal;
 import frc.robot.subsystems.arm.ArmIOSim;
+import frc.robot.subsystems.arm.ArmPreset;
+import frc.robot.subsystems.arm.ArmStateMachine;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.drive.DriveIO;
 import frc.robot.subsystems.drive.DriveIOSim;
 import frc.robot.subsystems.drive.DriveIOSparkMax;
+import frc.robot.subsystems.driver.Driver;
+import frc.robot.subsystems.driver.DriverIO;
+import frc.robot.subsystems.driver.DriverIOXbox;
+import frc.robot.util.BootTimer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a
@@ -37,41 +49,109 @@ import frc.robot.subsystems.drive.DriveIOSparkMax;
 public class RobotContainer {
   // Subsystems
   private final Drive drive;
-  private final Arm arm;
+  private Arm arm;
+  private ArmStateMachine armStateMachine;
+
+  // The arm IO is configured on a background thread, since setting up the SPARK MAX blocks on CAN.
+  // Whether it was ready is logged as an input so replay builds the arm on the same loop.
+  private final CompletableFuture<ArmIO> armIO;
+  private boolean armIOReady = false;
+  private final LoggableInputs deferredInitInputs =
+      new LoggableInputs() {
+        @Override
+        public void toLog(LogTable table) {
+          table.put("ArmIOReady", armIOReady);
+        }
+
+        @Override
+        public void fromLog(LogTable table) {
+          armIOReady = table.get("ArmIOReady", armIOReady);
+        }
+      };
 
   // private final Relay fan = new Relay(0);
-  // Controller
-  private final CommandXboxController controller = new CommandXboxController(0);
+  // Controller, sampled once per loop
+  private final Driver driver;
+  private boolean driveReadyRecorded = false;
 
   // Dashboard inputs
   // private final LoggedDashboardChooser<Command> autoChooser;
 
-  /** The container for the robot. Contains subsystems, OI devices, and commands. */
+  /**
+   * The container for the robot. Only the drive is created here so that the robot can be driven
+   * as soon as possible after boot. The arm IO starts up in the background and the rest is created
+   * by {@link #pollDeferredInit()} once it is ready.
+   */
   public RobotContainer() {
     switch (Constants.currentMode) {
       case REAL:
         // Real robot, instantiate hardware IO implementations
+        driver = new Driver(new DriverIOXbox(0));
         drive = new Drive(new DriveIOSparkMax());
-        arm = new Arm(new ArmIOReal());
+        armIO = CompletableFuture.supplyAsync(ArmIOReal::new);
         break;
 
       case SIM:
         // Sim robot, instantiate physics sim IO implementations
+        driver = new Driver(new DriverIOXbox(0));
         drive = new Drive(new DriveIOSim());
-        arm = new Arm(new ArmIOSim());
+        armIO = CompletableFuture.completedFuture(new ArmIOSim());
         break;
 
       default:
         // Replayed robot, disable IO implementations
+        driver = new Driver(new DriverIO() {});
         drive = new Drive(new DriveIO() {});
-        arm = new Arm(new ArmIO() {});
+        armIO = CompletableFuture.completedFuture(new ArmIO() {});
         break;
     }
 
-    arm.setDefaultCommand(Commands.run(() -> arm.setPosition(0), arm));
+    drive.setDefaultCommand(Commands.run(this::driveWithController, drive));
+  }
+
+  /** Arcade drive from the controller, run by the drive's default command. */
+  private void driveWithController() {
+    drive.driveArcade(
+        -driver.getSnapshot().leftY, -driver.getSnapshot().rightX); // changed left to right
+
+    // Default commands don't run while disabled, so this is the first output the driver can use
+    if (!driveReadyRecorded) {
+      driveReadyRecorded = true;
+      BootTimer.mark("DriveReady");
+    }
+  }
+
+  /**
+   * Creates the subsystems that are not needed to drive, along with their bindings, once the arm IO
+   * has finished starting up. Call every loop until it returns true.
+   */
+  public boolean pollDeferredInit() {
+    armIOReady = armIO.isDone();
+    Logger.processInputs("Boot", deferredInitInputs);
+    if (!armIOReady) {
+      return false;
+    }
+
+    ArmIO io;
+    try {
+      io = armIO.join();
+    } catch (CompletionException e) {
+      DriverStation.reportError("Arm IO failed to start: " + e.getCause(), e.getStackTrace());
+      io = new ArmIO() {};
+    }
+    arm = new Arm(io);
+
+    drive.setAuxiliaryCurrentSupplier(arm::getSupplyCurrentAmps);
+    armStateMachine = new ArmStateMachine(arm);
+    arm.setDefaultCommand(armStateMachine.presetCommand(ArmPreset.STOW));
+
+    // Home the arm against the hard stop on enable if the absolute encoder couldn't. Homing keeps
+    // retrying until it finds the stop, and starts again on the next enable if disabled part way.
+    new Trigger(() -> DriverStation.isEnabled() && !arm.isHomed()).onTrue(arm.homeCommand());
 
     // Configure the button bindings
     configureButtonBindings();
+    return true;
   }
 
   /**
@@ -81,19 +161,20 @@ public class RobotContainer {
    * edu.wpi.first.wpilibj2.command.button.JoystickButton}.
    */
 
+  /** Resets the per-match battery energy totals. */
+  public void resetMatchEnergy() {
+    drive.resetEnergyUsage();
+  }
+
   // EX: command.a()
   private void configureButtonBindings() {
-    drive.setDefaultCommand(
-        Commands.run(
-            () -> drive.driveArcade(-controller.getLeftY(), -controller.getRightX()),
-            drive)); // changed left to right
-    controller.a().whileTrue(arm.setPositionCommand(() -> 90));
-    controller.b().whileTrue(arm.setPositionCommand(() -> 180));
+    driver.a().whileTrue(armStateMachine.presetCommand(ArmPreset.SCORE));
+    driver.b().whileTrue(armStateMachine.presetCommand(ArmPreset.INTAKE));
 
-    // controller.rightBumper().whileTrue(Commands.run(() -> fan.set(Value.kOn)));
-    // controller.rightBumper().whileFalse(Commands.run(() -> fan.set(Value.kOff)));
+    // driver.rightBumper().whileTrue(Commands.run(() -> fan.set(Value.kOn)));
+    // driver.rightBumper().whileFalse(Commands.run(() -> fan.set(Value.kOff)));
 
     // * SysId Control *//
-    controller.x().onTrue(drive.runDriveCharacterizationCommand());
+    driver.x().onTrue(drive.runDriveCharacterizationCommand());
   }
 }
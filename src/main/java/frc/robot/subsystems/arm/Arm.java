@@ -2,31 +2,62 @@ package frc.robot.subsystems.arm;
 
 import static edu.wpi.first.units.Units.*;
 
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Command.InterruptionBehavior;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
+import frc.robot.Constants;
+import frc.robot.util.LoopGovernor;
+import frc.robot.util.MotorThermalModel;
+import frc.robot.util.TunableNumber;
 import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
 import org.littletonrobotics.junction.Logger;
 
 public class Arm extends SubsystemBase {
+  // Homing drives the arm down onto the stow hard stop until the motor stalls against it
+  private static final double HOMING_VOLTS = -1.5;
+  private static final double HOMING_STALL_AMPS = 3.5;
+  private static final double HOMING_STALL_MAX_VELOCITY_DEG_PER_SEC = 2.0;
+  private static final int HOMING_STALL_CYCLES = 10;
+  private static final double HOMING_TIMEOUT_SECS = 3.0;
+  private static final double HOMING_RETRY_DELAY_SECS = 1.0;
+  private static final double HARD_STOP_DEG = 0.0;
+
+  // Bang-bang controller settings, shared by the real and sim IO
+  public static final TunableNumber APPLIED_VOLTS =
+      new TunableNumber("Arm/AppliedVolts", Constants.armAppliedVolts);
+  public static final TunableNumber DEAD_ZONE_DEG =
+      new TunableNumber("Arm/DeadZoneDeg", Constants.armDeadZone);
+  // Current limit of the arm motor, not derated since it can only be set in whole amps
+  static final TunableNumber CURRENT_LIMIT_AMPS = new TunableNumber("Arm/CurrentLimitAmps", 4);
 
   private final ArmIO io;
+  private final DoubleSupplier deadZoneDeg;
+  private final LongSupplier clockMicros;
   private final ArmIOInputsAutoLogged inputs = new ArmIOInputsAutoLogged();
+  private final MotorThermalModel thermalModel = new MotorThermalModel(DCMotor.getNEO(1));
+  private int currentLimitAmps = (int) CURRENT_LIMIT_AMPS.get();
 
-  private final SysIdRoutine sysId;
+  // Created on first use, SysId is only run from the pits so there is no need to build it at boot
+  private SysIdRoutine sysId = null;
+  private int homingStallCycles = 0;
+  // Whether the last homing attempt found the hard stop
+  private boolean homingSucceeded = false;
 
   public Arm(ArmIO io) {
-    this.io = io;
+    this(io, DEAD_ZONE_DEG::get, Logger::getTimestamp);
+  }
 
-    // Configure SysId
-    sysId =
-        new SysIdRoutine(
-            new SysIdRoutine.Config(
-                null,
-                Volts.of(4),
-                null,
-                (state) -> Logger.recordOutput("Arm/SysIdState", state.toString())),
-            new SysIdRoutine.Mechanism((voltage) -> runVolts(voltage.in(Volts)), null, this));
+  /**
+   * Creates a new Arm that judges whether it is at a position using the given dead zone, and reads
+   * the current time in microseconds from the given clock.
+   */
+  public Arm(ArmIO io, DoubleSupplier deadZoneDeg, LongSupplier clockMicros) {
+    this.io = io;
+    this.deadZoneDeg = deadZoneDeg;
+    this.clockMicros = clockMicros;
   }
 
   @Override
@@ -34,6 +65,22 @@ public class Arm extends SubsystemBase {
     io.periodic();
     io.updateInputs(inputs);
     Logger.processInputs("Arm", inputs);
+
+    // Derate the bang-bang voltage as the motor heats up. The current limit stays put, so homing
+    // still has the full limit it needs to reach the stall current it looks for.
+    thermalModel.update(
+        Math.abs(inputs.armCurrentAmps), inputs.armTempCelsius, clockMicros.getAsLong() / 1e6);
+    double derateScale = thermalModel.getDerateScale();
+    io.setVoltageScale(derateScale);
+    int newCurrentLimitAmps = (int) Math.round(CURRENT_LIMIT_AMPS.get());
+    if (newCurrentLimitAmps != currentLimitAmps) {
+      currentLimitAmps = newCurrentLimitAmps;
+      io.setCurrentLimit(currentLimitAmps);
+    }
+    Logger.recordOutput("Arm/Thermal/Celsius", thermalModel.getTemperatureCelsius());
+    Logger.recordOutput("Arm/Thermal/PredictedCelsius", thermalModel.getPredictedCelsius());
+    Logger.recordOutput("Arm/Thermal/DerateScale", derateScale);
+    Logger.recordOutput("Arm/Thermal/CurrentLimitAmps", currentLimitAmps);
   }
 
   public void setPosition(double position) {
@@ -53,13 +100,106 @@ public class Arm extends SubsystemBase {
     Logger.recordOutput("Arm/GoalDeg", positionDeg);
     io.setPosition(positionDeg);
   }
-  
+
+  public double getPositionDeg() {
+    return inputs.armPositionDeg;
+  }
+
+  public double getCurrentAmps() {
+    return inputs.armCurrentAmps;
+  }
+
+  // Current drawn from the battery, rather than through the motor
+  public double getSupplyCurrentAmps() {
+    return inputs.armSupplyCurrentAmps;
+  }
+
+  // Whether the arm is within the dead zone of the given position
+  public boolean atPosition(double positionDeg) {
+    return Math.abs(inputs.armPositionDeg - positionDeg) <= deadZoneDeg.getAsDouble();
+  }
+
+  // The current time in microseconds, from the clock this arm was created with
+  long getTimestampMicros() {
+    return clockMicros.getAsLong();
+  }
+
+  // Whether the arm position can be trusted, either from the absolute encoder or from homing
+  public boolean isHomed() {
+    return inputs.armHomed;
+  }
+
+  // Stops the arm where it is, with the bang-bang controller off
+  public void stop() {
+    runVolts(0.0);
+  }
+
+  // Drives the arm into the hard stop and zeroes the encoder once the current shows it has stalled.
+  // Attempts that time out leave the arm stopped and are retried until one succeeds, and nothing
+  // can interrupt it in between since any other command would run on an unzeroed encoder.
+  public Command homeCommand() {
+    return homeAttemptCommand()
+        .andThen(
+            run(this::stop).withTimeout(HOMING_RETRY_DELAY_SECS).unless(() -> homingSucceeded))
+        .repeatedly()
+        .until(() -> homingSucceeded)
+        .beforeStarting(() -> homingSucceeded = false)
+        .withInterruptBehavior(InterruptionBehavior.kCancelIncoming)
+        .withName("ArmHome");
+  }
+
+  private Command homeAttemptCommand() {
+    return run(
+            () -> {
+              runVolts(HOMING_VOLTS);
+              boolean stalled =
+                  inputs.armCurrentAmps >= HOMING_STALL_AMPS
+                      && Math.abs(inputs.armVelocityDegPerSec)
+                          < HOMING_STALL_MAX_VELOCITY_DEG_PER_SEC;
+              homingStallCycles = stalled ? homingStallCycles + 1 : 0;
+            })
+        .beforeStarting(() -> homingStallCycles = 0)
+        .until(() -> homingStallCycles >= HOMING_STALL_CYCLES)
+        .withTimeout(HOMING_TIMEOUT_SECS)
+        .andThen(
+            runOnce(
+                () -> {
+                  homingSucceeded = homingStallCycles >= HOMING_STALL_CYCLES;
+                  Logger.recordOutput("Arm/HomingSucceeded", homingSucceeded);
+                  if (homingSucceeded) {
+                    io.resetPosition(HARD_STOP_DEG);
+                    runPosition(HARD_STOP_DEG);
+                  } else {
+                    stop();
+                  }
+                }));
+  }
+
   // SYSID commands
   public Command sysIdQuasistatic(SysIdRoutine.Direction direction) {
-    return sysId.quasistatic(direction);
+    return getSysId().quasistatic(direction);
   }
 
   public Command sysIdDynamic(SysIdRoutine.Direction direction) {
-    return sysId.dynamic(direction);
+    return getSysId().dynamic(direction);
+  }
+
+  private SysIdRoutine getSysId() {
+    if (sysId == null) {
+      // Configure SysId
+      sysId =
+          new SysIdRoutine(
+              new SysIdRoutine.Config(
+                  null,
+                  Volts.of(4),
+                  null,
+                  (state) -> {
+                    if (LoopGovernor.isSysIdLoggingEnabled()) {
+                      Logger.recordOutput("Arm/SysIdState", state.toString());
+                    }
+                  }),
+              new SysIdRoutine.Mechanism((voltage) -> runVolts(voltage.in(Volts)), null, this));
+    }
+    return sysId;
   }
 }
@@ -11,8 +11,14 @@ public interface ArmIO {
     public double armVelocityDegPerSec = 0.0;
     public double armAppliedVolts = 0.0;
     public double armCurrentAmps = 0.0;
+    public double armSupplyCurrentAmps = 0.0;
     public double armGoalPosition = 0.0;
     public double armSetpointPosition = 0.0;
+    public double armAbsolutePositionDeg = 0.0;
+    public boolean armAbsoluteConnected = false;
+    public double armEncoderDriftDeg = 0.0;
+    public boolean armHomed = false;
+    public double armTempCelsius = 0.0;
   }
 
   /** Updates the set of loggable inputs. */
@@ -20,8 +26,17 @@ public interface ArmIO {
 
   public default void setPosition(double position) {}
 
+  /** Tells the encoders the arm is currently at the given position, and marks the arm as homed. */
+  public default void resetPosition(double positionDeg) {}
+
   /** Run open loop at the specified voltage. */
   public default void setVoltage(double volts) {}
 
+  /** Sets the current limit of the arm motor. */
+  public default void setCurrentLimit(int amps) {}
+
+  /** Scales the voltage the bang-bang controller applies, used to derate a hot motor. */
+  public default void setVoltageScale(double scale) {}
+
   public default void periodic() {}
 }
@@ -4,16 +4,38 @@ import com.revrobotics.CANSparkBase;
 import com.revrobotics.CANSparkLowLevel.MotorType;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.util.Units;
-import frc.robot.Constants;
+import edu.wpi.first.wpilibj.DutyCycleEncoder;
 
 public class ArmIOReal implements ArmIO {
 
   // Changed gear ratio from 100 --> 90 * 100 / 130 as 130 was true 90 degrees
   private static final double GEAR_RATIO = (90 * 100) / 130;
+  // The through bore encoder is only trusted once it has been calibrated on the robot. Until then
+  // the arm is homed against the hard stop instead. To calibrate, set the inversion so that
+  // Arm/ArmAbsolutePositionDeg rises with Arm/ArmPositionDeg, then rest the arm on the stow hard
+  // stop and add the reading to the offset.
+  private static final boolean ABSOLUTE_ENCODER_CALIBRATED = false;
+  private static final double ABSOLUTE_OFFSET_DEG = 0.0;
+  private static final boolean ABSOLUTE_ENCODER_INVERTED = false;
+  // How far the NEO encoder can wander from the absolute encoder before it gets re-synced
+  private static final double MAX_DRIFT_DEG = 2.0;
+  // Only re-sync while the arm is nearly still, the duty cycle signal lags the NEO when moving
+  private static final double RESYNC_MAX_VELOCITY_DEG_PER_SEC = 5.0;
+  // Motor temperature changes slowly, so it is only read every half second
+  private static final int TEMPERATURE_READ_PERIOD_CYCLES = 25;
+
   private final CANSparkMax armMotor = new CANSparkMax(9, MotorType.kBrushless);
   private final RelativeEncoder armEncoder = armMotor.getEncoder();
-  private double armSetpointPosition = armEncoder.getPosition();
+  // REV Through Bore encoder on the arm shaft, plugged into DIO 0
+  private final DutyCycleEncoder absoluteEncoder = new DutyCycleEncoder(0);
+  private double armSetpointPosition = 0.0;
+  private boolean homed = false;
+  private boolean openLoop = false;
+  private double voltageScale = 1.0;
+  private int cyclesSinceTemperatureRead = TEMPERATURE_READ_PERIOD_CYCLES;
+  private double armTempCelsius = 0.0;
 
   // Private helper functions
   private void motorsetup(CANSparkMax motor) {
@@ -21,7 +43,7 @@ public class ArmIOReal implements ArmIO {
     motor.restoreFactoryDefaults();
     motor.setCANTimeout(250);
     motor.enableVoltageCompensation(12.0);
-    motor.setSmartCurrentLimit(4);
+    motor.setSmartCurrentLimit((int) Arm.CURRENT_LIMIT_AMPS.get());
     motor.setIdleMode(CANSparkBase.IdleMode.kBrake);
     motor.setInverted(true);
 
@@ -29,6 +51,9 @@ public class ArmIOReal implements ArmIO {
     // during a brown-out scenario where the Spark Max loses power but the
     // RoboRio does not
     motor.burnFlash();
+    // Don't wait for acknowledgements once configured, so a current limit changed from the loop
+    // never blocks it
+    motor.setCANTimeout(0);
   }
 
   // This gets the motors current velocity in Degrees per second
@@ -41,6 +66,14 @@ public class ArmIOReal implements ArmIO {
     return Units.rotationsToDegrees(armEncoder.getPosition() / GEAR_RATIO);
   }
 
+  // This gets the arm position from the through bore encoder in Degrees, in the same direction as
+  // the inverted motor
+  private double getAbsolutePosition() {
+    double rawDeg = Units.rotationsToDegrees(absoluteEncoder.getAbsolutePosition());
+    return MathUtil.inputModulus(
+        (ABSOLUTE_ENCODER_INVERTED ? -rawDeg : rawDeg) - ABSOLUTE_OFFSET_DEG, -90.0, 270.0);
+  }
+
   // This gets the motors current distance away from the goal position (AKA Error)
   private double getError() {
     return this.armSetpointPosition - this.getPosition();
@@ -49,6 +82,12 @@ public class ArmIOReal implements ArmIO {
   // Class function
   public ArmIOReal() {
     motorsetup(armMotor);
+
+    // Seed the NEO encoder from the absolute encoder so a reboot with the arm up doesn't matter
+    if (ABSOLUTE_ENCODER_CALIBRATED && absoluteEncoder.isConnected()) {
+      resetPosition(getAbsolutePosition());
+    }
+    armSetpointPosition = getPosition();
   }
 
   // Override functions
@@ -61,23 +100,76 @@ public class ArmIOReal implements ArmIO {
     inputs.armSetpointPosition = this.armSetpointPosition;
     inputs.armAppliedVolts = armMotor.getAppliedOutput() * armMotor.getBusVoltage();
     inputs.armCurrentAmps = armMotor.getOutputCurrent();
+    // Motor current scaled by duty cycle is what is drawn from the battery
+    inputs.armSupplyCurrentAmps = inputs.armCurrentAmps * Math.abs(armMotor.getAppliedOutput());
+    if (++cyclesSinceTemperatureRead >= TEMPERATURE_READ_PERIOD_CYCLES) {
+      cyclesSinceTemperatureRead = 0;
+      armTempCelsius = armMotor.getMotorTemperature();
+    }
+    inputs.armTempCelsius = armTempCelsius;
+
+    inputs.armAbsoluteConnected = absoluteEncoder.isConnected();
+    if (inputs.armAbsoluteConnected) {
+      inputs.armAbsolutePositionDeg = getAbsolutePosition();
+      inputs.armEncoderDriftDeg = inputs.armPositionDeg - inputs.armAbsolutePositionDeg;
+
+      // Pull the NEO encoder back in line if it has slipped
+      if (ABSOLUTE_ENCODER_CALIBRATED
+          && Math.abs(inputs.armEncoderDriftDeg) > MAX_DRIFT_DEG
+          && Math.abs(inputs.armVelocityDegPerSec) < RESYNC_MAX_VELOCITY_DEG_PER_SEC) {
+        resetPosition(inputs.armAbsolutePositionDeg);
+      }
+    } else {
+      inputs.armEncoderDriftDeg = 0.0;
+    }
+    inputs.armHomed = homed;
   }
 
   // Sets the goal position for the bangbang controller
   @Override
   public void setPosition(double position) {
     this.armSetpointPosition = position;
+    openLoop = false;
+  }
+
+  @Override
+  public void resetPosition(double positionDeg) {
+    armEncoder.setPosition(Units.degreesToRotations(positionDeg) * GEAR_RATIO);
+    homed = true;
+  }
+
+  @Override
+  public void setVoltage(double volts) {
+    openLoop = true;
+    armMotor.setVoltage(volts);
+  }
+
+  // Only sent to the controller, not burned to flash
+  @Override
+  public void setCurrentLimit(int amps) {
+    armMotor.setSmartCurrentLimit(amps);
+  }
+
+  @Override
+  public void setVoltageScale(double scale) {
+    voltageScale = scale;
   }
 
   // Updates periodically, lets use this to move the arm!
   @Override
   public void periodic() {
+    if (openLoop) {
+      return;
+    }
+
     /* Since the WPILib bang bang controller only operates in the forwards direction, let's roll our own */
     double error = getError();
-    if (error > Constants.armDeadZone) {
-      armMotor.setVoltage(Constants.armAppliedVolts);
-    } else if (error < -Constants.armDeadZone) {
-      armMotor.setVoltage(-Constants.armAppliedVolts);
+    double deadZone = Arm.DEAD_ZONE_DEG.get();
+    double volts = Arm.APPLIED_VOLTS.get() * voltageScale;
+    if (error > deadZone) {
+      armMotor.setVoltage(volts);
+    } else if (error < -deadZone) {
+      armMotor.setVoltage(-volts);
     } else {
       armMotor.setVoltage(0);
     }
@@ -1,3 +1,99 @@
 package frc.robot.subsystems.arm;
-// TODO: Sim version of ArmIO
-public class ArmIOSim implements ArmIO {}
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import java.util.function.DoubleSupplier;
+
+public class ArmIOSim implements ArmIO {
+  private static final double GEAR_RATIO = (90 * 100) / 130;
+  private static final double ARM_LENGTH_METERS = 0.6;
+  private static final double ARM_MASS_KG = 2.0;
+
+  private final SingleJointedArmSim sim =
+      new SingleJointedArmSim(
+          DCMotor.getNEO(1),
+          GEAR_RATIO,
+          SingleJointedArmSim.estimateMOI(ARM_LENGTH_METERS, ARM_MASS_KG),
+          ARM_LENGTH_METERS,
+          Units.degreesToRadians(0.0),
+          Units.degreesToRadians(190.0),
+          true,
+          0.0);
+
+  private final DoubleSupplier deadZoneDeg;
+  private final DoubleSupplier appliedVolts;
+
+  private double armSetpointPosition = 0.0;
+  private double armAppliedVolts = 0.0;
+  private boolean openLoop = false;
+  private double voltageScale = 1.0;
+
+  public ArmIOSim() {
+    this(Arm.DEAD_ZONE_DEG::get, Arm.APPLIED_VOLTS::get);
+  }
+
+  /** Creates a sim whose bang-bang controller settings are read from the suppliers every loop. */
+  public ArmIOSim(DoubleSupplier deadZoneDeg, DoubleSupplier appliedVolts) {
+    this.deadZoneDeg = deadZoneDeg;
+    this.appliedVolts = appliedVolts;
+  }
+
+  private double getPosition() {
+    return Units.radiansToDegrees(sim.getAngleRads());
+  }
+
+  @Override
+  public void updateInputs(ArmIOInputs inputs) {
+    sim.setInputVoltage(armAppliedVolts);
+    sim.update(0.02);
+
+    inputs.armPositionDeg = getPosition();
+    inputs.armErrorDeg = armSetpointPosition - inputs.armPositionDeg;
+    inputs.armVelocityDegPerSec = Units.radiansToDegrees(sim.getVelocityRadPerSec());
+    inputs.armSetpointPosition = armSetpointPosition;
+    inputs.armAppliedVolts = armAppliedVolts;
+    inputs.armCurrentAmps = sim.getCurrentDrawAmps();
+    inputs.armSupplyCurrentAmps = inputs.armCurrentAmps * Math.abs(armAppliedVolts) / 12.0;
+    inputs.armAbsolutePositionDeg = inputs.armPositionDeg;
+    inputs.armAbsoluteConnected = true;
+    inputs.armEncoderDriftDeg = 0.0;
+    inputs.armHomed = true;
+  }
+
+  @Override
+  public void setPosition(double position) {
+    armSetpointPosition = position;
+    openLoop = false;
+  }
+
+  @Override
+  public void setVoltage(double volts) {
+    openLoop = true;
+    armAppliedVolts = volts;
+  }
+
+  @Override
+  public void setVoltageScale(double scale) {
+    voltageScale = scale;
+  }
+
+  // Same bang-bang controller as the real arm
+  @Override
+  public void periodic() {
+    if (openLoop) {
+      return;
+    }
+
+    double error = armSetpointPosition - getPosition();
+    double deadZone = deadZoneDeg.getAsDouble();
+    double volts = appliedVolts.getAsDouble() * voltageScale;
+    if (error > deadZone) {
+      armAppliedVolts = volts;
+    } else if (error < -deadZone) {
+      armAppliedVolts = -volts;
+    } else {
+      armAppliedVolts = 0.0;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package frc.robot.subsystems.arm;
+
+import java.util.EnumSet;
+
+/** Named arm positions, along with which other presets the arm may move to directly. */
+public enum ArmPreset {
+  /** Resting inside the frame perimeter. */
+  STOW(0.0),
+
+  /** Straight up, clear of the bumper on both sides. */
+  SCORE(90.0),
+
+  /** Reaching out over the bumper to the floor. */
+  INTAKE(180.0);
+
+  /**
+   * The preset used to get between two presets that cannot be moved between directly. The arm has
+   * to settle here before it continues, so it never carries momentum into the bumper.
+   */
+  public static final ArmPreset WAYPOINT = SCORE;
+
+  public final double positionDeg;
+
+  private EnumSet<ArmPreset> legalTransitions;
+
+  static {
+    STOW.legalTransitions = EnumSet.of(SCORE);
+    SCORE.legalTransitions = EnumSet.of(STOW, INTAKE);
+    INTAKE.legalTransitions = EnumSet.of(SCORE);
+  }
+
+  ArmPreset(double positionDeg) {
+    this.positionDeg = positionDeg;
+  }
+
+  /** Returns the preset closest to the given arm position, i.e. the region the arm is in. */
+  public static ArmPreset nearest(double positionDeg) {
+    ArmPreset nearest = STOW;
+    for (ArmPreset preset : values()) {
+      if (Math.abs(preset.positionDeg - positionDeg)
+          < Math.abs(nearest.positionDeg - positionDeg)) {
+        nearest = preset;
+      }
+    }
+    return nearest;
+  }
+
+  /** Returns whether the arm can move straight from this preset to the given one. */
+  public boolean canTransitionTo(ArmPreset next) {
+    return next == this || legalTransitions.contains(next);
+  }
+}
@@ -0,0 +1,87 @@
+package frc.robot.subsystems.arm;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.EnumMap;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Moves the arm between the {@link ArmPreset}s, routing through {@link ArmPreset#WAYPOINT} whenever
+ * a direct move is not allowed. One command is built per preset up front and handed out every time
+ * it is bound, so repeatedly pressing a button never creates new commands.
+ */
+public class ArmStateMachine {
+  private final Arm arm;
+  private final EnumMap<ArmPreset, Command> presetCommands = new EnumMap<>(ArmPreset.class);
+
+  // The preset region the arm is physically in, worked out from its position every loop
+  private ArmPreset currentState = ArmPreset.STOW;
+  // Null until the first preset is requested, so the first request is planned like any other
+  private ArmPreset requestedState = null;
+  private boolean viaWaypoint = false;
+  private boolean transitioning = false;
+  private long transitionStartMicros = 0;
+
+  public ArmStateMachine(Arm arm) {
+    this.arm = arm;
+    for (ArmPreset preset : ArmPreset.values()) {
+      presetCommands.put(preset, arm.run(() -> runToward(preset)).withName("Arm" + preset));
+    }
+  }
+
+  /** Returns the command that moves the arm to and holds it at the given preset. */
+  public Command presetCommand(ArmPreset preset) {
+    return presetCommands.get(preset);
+  }
+
+  /** Returns the preset region the arm is currently in. */
+  public ArmPreset getCurrentState() {
+    return currentState;
+  }
+
+  /** Returns whether the arm is still on its way to the last requested preset. */
+  public boolean isTransitioning() {
+    return transitioning;
+  }
+
+  /**
+   * Moves the arm one loop closer to the given preset. Run every loop by the preset commands, and
+   * called directly by anything that steps the arm without the scheduler, like the sim harness.
+   */
+  public void runToward(ArmPreset goal) {
+    // Presets are meaningless until the encoder has been zeroed, so hold still until then
+    if (!arm.isHomed()) {
+      arm.stop();
+      Logger.recordOutput("Arm/State", "Unhomed");
+      return;
+    }
+
+    if (goal != requestedState) {
+      requestedState = goal;
+      transitioning = true;
+      transitionStartMicros = arm.getTimestampMicros();
+
+      // Plan from where the arm actually is rather than where it last settled, so a move that is
+      // changed part way through, or a reboot with the arm out, still goes through the waypoint
+      viaWaypoint = !ArmPreset.nearest(arm.getPositionDeg()).canTransitionTo(goal);
+    }
+
+    // The arm has to settle at the waypoint before it heads on to the goal
+    if (viaWaypoint && arm.atPosition(ArmPreset.WAYPOINT.positionDeg)) {
+      viaWaypoint = false;
+    }
+    ArmPreset target = viaWaypoint ? ArmPreset.WAYPOINT : goal;
+    arm.runPosition(target.positionDeg);
+
+    currentState = ArmPreset.nearest(arm.getPositionDeg());
+    if (transitioning && target == goal && arm.atPosition(goal.positionDeg)) {
+      transitioning = false;
+      Logger.recordOutput(
+          "Arm/TransitionMs", (arm.getTimestampMicros() - transitionStartMicros) / 1000.0);
+    }
+
+    Logger.recordOutput("Arm/State", currentState.name());
+    Logger.recordOutput("Arm/RequestedState", requestedState.name());
+    Logger.recordOutput("Arm/ViaWaypoint", viaWaypoint);
+    Logger.recordOutput("Arm/Transitioning", transitioning);
+  }
+}
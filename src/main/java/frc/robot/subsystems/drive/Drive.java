@@ -15,44 +15,104 @@ package frc.robot.subsystems.drive;
 
 import static edu.wpi.first.units.Units.*;
 
+import edu.wpi.first.math.controller.RamseteController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
 import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Direction;
 import frc.robot.Constants;
 import frc.robot.Constants.Mode;
+import frc.robot.util.BatteryModel;
+import frc.robot.util.LoopGovernor;
+import frc.robot.util.MotorThermalModel;
+import frc.robot.util.TunableNumber;
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 public class Drive extends SubsystemBase {
   public static final double WHEEL_RADIUS = Units.inchesToMeters(2.4);
   public static final double TRACK_WIDTH = Units.inchesToMeters(26.0);
+  public static final double MAX_TRAJECTORY_VELOCITY = 3.0;
+  public static final double MAX_TRAJECTORY_ACCELERATION = 2.0;
+
+  // Used to predict how much current a drive command will pull, three NEOs per side
+  private static final DCMotor SIDE_GEARBOX = DCMotor.getNEO(3).withReduction(5.0);
+  private static final int MOTORS_PER_SIDE = 3;
+  // Drive commands are scaled back so the battery is predicted to stay above this
+  private static final double MIN_PREDICTED_VOLTS = 7.5;
+  // Used to convert motor current to supply current when there is no real bus voltage reading
+  private static final double NOMINAL_BUS_VOLTS = 12.0;
+  private static final double MIN_VALID_BUS_VOLTS = 1.0;
 
   // TODO: NON-SIM FEEDFORWARD GAINS MUST BE TUNED
-  // Consider using SysId routines defined in RobotContainer
-  private static final double KS = Constants.currentMode == Mode.SIM ? 0.0 : 0.0;
-  private static final double KV = Constants.currentMode == Mode.SIM ? 0.227 : 0.0;
+  // Consider using SysId routines defined in RobotContainer. Until then the real kV is the
+  // theoretical value for the gearbox, so path following still has something to work with.
+  private static final TunableNumber KS =
+      new TunableNumber("Drive/KS", Constants.currentMode == Mode.SIM ? 0.0 : 0.0);
+  private static final TunableNumber KV =
+      new TunableNumber(
+          "Drive/KV",
+          Constants.currentMode == Mode.SIM ? 0.227 : 1.0 / SIDE_GEARBOX.KvRadPerSecPerVolt);
+  // Current limit per motor when cool, derated from here as the motors heat up
+  static final TunableNumber CURRENT_LIMIT_AMPS = new TunableNumber("Drive/CurrentLimitAmps", 20);
 
   private final DriveIO io;
+  private final DoubleSupplier kS;
+  private final DoubleSupplier kV;
+  private final LongSupplier clockMicros;
   private final DriveIOInputsAutoLogged inputs = new DriveIOInputsAutoLogged();
   private final DifferentialDriveOdometry odometry =
       new DifferentialDriveOdometry(new Rotation2d(), 0.0, 0.0);
   private final DifferentialDriveKinematics kinematics =
       new DifferentialDriveKinematics(TRACK_WIDTH);
-  private final SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(KS, KV);
+  private SimpleMotorFeedforward feedforward;
+  private final RamseteController ramsete = new RamseteController();
+  private long trajectoryStartMicros = 0;
+  private final BatteryModel battery = new BatteryModel();
+  private DoubleSupplier auxiliaryCurrentSupplier = () -> 0.0;
+  private final MotorThermalModel[] leftThermalModels = new MotorThermalModel[MOTORS_PER_SIDE];
+  private final MotorThermalModel[] rightThermalModels = new MotorThermalModel[MOTORS_PER_SIDE];
+  private int currentLimitAmps = (int) CURRENT_LIMIT_AMPS.get();
   private final SysIdRoutine sysId;
 
   /** Creates a new Drive. */
   public Drive(DriveIO io) {
+    this(io, KS::get, KV::get, Logger::getTimestamp);
+  }
+
+  /**
+   * Creates a new Drive.
+   *
+   * @param io The drive IO
+   * @param kS Supplies the static feedforward gain, read every time the feedforward is used
+   * @param kV Supplies the velocity feedforward gain, read every time the feedforward is used
+   * @param clockMicros Supplies the current time in microseconds
+   */
+  public Drive(DriveIO io, DoubleSupplier kS, DoubleSupplier kV, LongSupplier clockMicros) {
     this.io = io;
+    this.kS = kS;
+    this.kV = kV;
+    this.clockMicros = clockMicros;
+    this.feedforward = new SimpleMotorFeedforward(kS.getAsDouble(), kV.getAsDouble());
+    for (int i = 0; i < MOTORS_PER_SIDE; i++) {
+      leftThermalModels[i] = new MotorThermalModel(DCMotor.getNEO(1));
+      rightThermalModels[i] = new MotorThermalModel(DCMotor.getNEO(1));
+    }
 
     // Configure SysId
     sysId =
@@ -79,6 +139,73 @@ public class Drive extends SubsystemBase {
 
     // Update odometry
     odometry.update(inputs.gyroYaw, getLeftPositionMeters(), getRightPositionMeters());
+
+    double timestampSecs = clockMicros.getAsLong() / 1e6;
+
+    // Update thermal models and derate the current limit as the motors heat up
+    double thermalScale =
+        Math.min(
+            updateThermalModels(
+                leftThermalModels, inputs.leftCurrentAmps, inputs.leftTempCelsius, timestampSecs),
+            updateThermalModels(
+                rightThermalModels,
+                inputs.rightCurrentAmps,
+                inputs.rightTempCelsius,
+                timestampSecs));
+    int newCurrentLimitAmps = (int) Math.round(CURRENT_LIMIT_AMPS.get() * thermalScale);
+    if (newCurrentLimitAmps != currentLimitAmps) {
+      currentLimitAmps = newCurrentLimitAmps;
+      io.setCurrentLimit(currentLimitAmps);
+    }
+    Logger.recordOutput(
+        "Drive/Thermal/LeftCelsius",
+        Arrays.stream(leftThermalModels)
+            .mapToDouble(MotorThermalModel::getTemperatureCelsius)
+            .toArray());
+    Logger.recordOutput(
+        "Drive/Thermal/RightCelsius",
+        Arrays.stream(rightThermalModels)
+            .mapToDouble(MotorThermalModel::getTemperatureCelsius)
+            .toArray());
+    Logger.recordOutput("Drive/Thermal/DerateScale", thermalScale);
+    Logger.recordOutput("Drive/Thermal/CurrentLimitAmps", currentLimitAmps);
+
+    // Update battery model, the controllers report motor current so scale it to supply current
+    double totalAmps = auxiliaryCurrentSupplier.getAsDouble();
+    for (double amps : inputs.leftCurrentAmps) {
+      totalAmps += toSupplyAmps(amps, inputs.leftAppliedVolts);
+    }
+    for (double amps : inputs.rightCurrentAmps) {
+      totalAmps += toSupplyAmps(amps, inputs.rightAppliedVolts);
+    }
+    battery.update(inputs.batteryVoltage, totalAmps, timestampSecs);
+    Logger.recordOutput("Battery/TotalCurrentAmps", totalAmps);
+    Logger.recordOutput("Battery/OpenCircuitVolts", battery.getOpenCircuitVolts());
+    Logger.recordOutput("Battery/ResistanceOhms", battery.getResistanceOhms());
+    Logger.recordOutput("Battery/MatchEnergyWattHours", battery.getEnergyWattHours());
+    Logger.recordOutput("Battery/MatchChargeAmpHours", battery.getChargeAmpHours());
+
+    // Diagnostics only, these get shed first when the loop is overrunning
+    if (LoopGovernor.isDiagnosticsEnabled()) {
+      Logger.recordOutput("Drive/LeftPositionMeters", getLeftPositionMeters());
+      Logger.recordOutput("Drive/RightPositionMeters", getRightPositionMeters());
+      Logger.recordOutput("Drive/LeftVelocityMetersPerSec", getLeftVelocityMetersPerSec());
+      Logger.recordOutput("Drive/RightVelocityMetersPerSec", getRightVelocityMetersPerSec());
+    }
+  }
+
+  /** Steps each motor's thermal model and returns the smallest derate scale among them. */
+  private static double updateThermalModels(
+      MotorThermalModel[] models, double[] currents, double[] temps, double timestampSecs) {
+    double scale = 1.0;
+    for (int i = 0; i < models.length; i++) {
+      models[i].update(
+          i < currents.length ? Math.abs(currents[i]) : 0.0,
+          i < temps.length ? temps[i] : 0.0,
+          timestampSecs);
+      scale = Math.min(scale, models[i].getDerateScale());
+    }
+    return scale;
   }
 
   public Command stopCommand() {
@@ -87,15 +214,29 @@ public class Drive extends SubsystemBase {
 
   /** Run open loop at the specified voltage. */
   public void driveVolts(double leftVolts, double rightVolts) {
+    Logger.recordOutput("Drive/LeftSetpointVolts", leftVolts);
+    Logger.recordOutput("Drive/RightSetpointVolts", rightVolts);
     io.setVoltage(leftVolts, rightVolts);
   }
 
-  /** Run closed loop at the specified voltage. */
+  /** Run closed loop at the specified velocity. */
   public void driveVelocity(double leftMetersPerSec, double rightMetersPerSec) {
-    Logger.recordOutput("Drive/LeftVelocitySetpointMetersPerSec", leftMetersPerSec);
-    Logger.recordOutput("Drive/RightVelocitySetpointMetersPerSec", rightMetersPerSec);
-    double leftRadPerSec = leftMetersPerSec / WHEEL_RADIUS;
-    double rightRadPerSec = rightMetersPerSec / WHEEL_RADIUS;
+    // Rebuild the feedforward whenever either gain has been retuned
+    if (feedforward.ks != kS.getAsDouble() || feedforward.kv != kV.getAsDouble()) {
+      feedforward = new SimpleMotorFeedforward(kS.getAsDouble(), kV.getAsDouble());
+    }
+
+    // Slow down the same way as open loop driving if the battery is going to sag too far. The
+    // feedforward stands in for the output, since the feedback is only known to the controller.
+    double scale =
+        getBrownoutScale(
+            feedforward.calculate(leftMetersPerSec / WHEEL_RADIUS),
+            feedforward.calculate(rightMetersPerSec / WHEEL_RADIUS));
+    double leftRadPerSec = leftMetersPerSec * scale / WHEEL_RADIUS;
+    double rightRadPerSec = rightMetersPerSec * scale / WHEEL_RADIUS;
+
+    Logger.recordOutput("Drive/LeftVelocitySetpointMetersPerSec", leftMetersPerSec * scale);
+    Logger.recordOutput("Drive/RightVelocitySetpointMetersPerSec", rightMetersPerSec * scale);
     io.setVelocity(
         leftRadPerSec,
         rightRadPerSec,
@@ -106,12 +247,75 @@ public class Drive extends SubsystemBase {
   /** Run open loop based on stick positions. */
   public void driveArcade(double xSpeed, double zRotation) {
     var speeds = DifferentialDrive.arcadeDriveIK(xSpeed, zRotation, true);
-    io.setVoltage(speeds.left * 12.0, speeds.right * 12.0);
+    double scale = getBrownoutScale(speeds.left * 12.0, speeds.right * 12.0);
+    driveVolts(speeds.left * 12.0 * scale, speeds.right * 12.0 * scale);
+  }
+
+  /**
+   * Returns how much to scale the given drive voltages by so the battery is predicted to stay
+   * above {@link #MIN_PREDICTED_VOLTS} on the next loop.
+   */
+  private double getBrownoutScale(double leftVolts, double rightVolts) {
+    double scale = 1.0;
+    if (battery.predictVolts(predictCurrent(leftVolts, rightVolts)) < MIN_PREDICTED_VOLTS) {
+      // Current is monotonic in the scale, so bisect for the largest one that stays above
+      double low = 0.0;
+      double high = 1.0;
+      for (int i = 0; i < 10; i++) {
+        double mid = (low + high) / 2.0;
+        if (battery.predictVolts(predictCurrent(leftVolts * mid, rightVolts * mid))
+            < MIN_PREDICTED_VOLTS) {
+          high = mid;
+        } else {
+          low = mid;
+        }
+      }
+      scale = low;
+    }
+    Logger.recordOutput(
+        "Battery/PredictedVolts",
+        battery.predictVolts(predictCurrent(leftVolts * scale, rightVolts * scale)));
+    Logger.recordOutput("Battery/DriveScale", scale);
+    return scale;
+  }
+
+  /** Predicts the total battery current if the drive was commanded to the given voltages. */
+  private double predictCurrent(double leftVolts, double rightVolts) {
+    // The current limit applies to motor current, which is then scaled down to supply current
+    double maxSideAmps = MOTORS_PER_SIDE * currentLimitAmps;
+    double leftAmps =
+        Math.min(
+            Math.abs(SIDE_GEARBOX.getCurrent(inputs.leftVelocityRadPerSec, leftVolts)),
+            maxSideAmps);
+    double rightAmps =
+        Math.min(
+            Math.abs(SIDE_GEARBOX.getCurrent(inputs.rightVelocityRadPerSec, rightVolts)),
+            maxSideAmps);
+    return auxiliaryCurrentSupplier.getAsDouble()
+        + toSupplyAmps(leftAmps, leftVolts)
+        + toSupplyAmps(rightAmps, rightVolts);
+  }
+
+  /** Converts a motor current to the current drawn from the battery at the given output. */
+  private double toSupplyAmps(double motorAmps, double appliedVolts) {
+    double busVolts =
+        inputs.batteryVoltage > MIN_VALID_BUS_VOLTS ? inputs.batteryVoltage : NOMINAL_BUS_VOLTS;
+    return Math.abs(motorAmps) * Math.min(1.0, Math.abs(appliedVolts) / busVolts);
+  }
+
+  /** Adds the current drawn by other mechanisms to the battery model. */
+  public void setAuxiliaryCurrentSupplier(DoubleSupplier auxiliaryCurrentSupplier) {
+    this.auxiliaryCurrentSupplier = auxiliaryCurrentSupplier;
+  }
+
+  /** Starts counting battery energy use from zero, called at the start of each match. */
+  public void resetEnergyUsage() {
+    battery.resetUsage();
   }
 
   /** Stops the drive. */
   public void stop() {
-    io.setVoltage(0.0, 0.0);
+    driveVolts(0.0, 0.0);
   }
 
   /** Runs a command to do full drive characterization without multiple commmands */
@@ -124,6 +328,57 @@ public class Drive extends SubsystemBase {
         stopCommand());
   }
 
+  /** Returns a trajectory config limited to what this drive can follow. */
+  public TrajectoryConfig getTrajectoryConfig() {
+    return new TrajectoryConfig(MAX_TRAJECTORY_VELOCITY, MAX_TRAJECTORY_ACCELERATION)
+        .setKinematics(kinematics);
+  }
+
+  /** Follows a trajectory with a RAMSETE controller on top of the closed loop velocity control. */
+  public Command followTrajectoryCommand(Trajectory trajectory) {
+    return new FunctionalCommand(
+        () -> {
+          trajectoryStartMicros = clockMicros.getAsLong();
+          Logger.recordOutput(
+              "Drive/Trajectory/Path",
+              trajectory.getStates().stream()
+                  .map((state) -> state.poseMeters)
+                  .toArray(Pose2d[]::new));
+        },
+        () -> trackTrajectory(trajectory.sample(getTrajectoryTime())),
+        (interrupted) -> {
+          stop();
+          Pose2d finalGoal = trajectory.sample(trajectory.getTotalTimeSeconds()).poseMeters;
+          Logger.recordOutput(
+              "Drive/Trajectory/FinalErrorMeters",
+              finalGoal.getTranslation().getDistance(getPose().getTranslation()));
+          Logger.recordOutput("Drive/Trajectory/CompletionSecs", getTrajectoryTime());
+        },
+        () -> getTrajectoryTime() >= trajectory.getTotalTimeSeconds(),
+        this);
+  }
+
+  /** Returns the seconds since the current trajectory was started. */
+  private double getTrajectoryTime() {
+    return (clockMicros.getAsLong() - trajectoryStartMicros) / 1e6;
+  }
+
+  /** Drives toward a single trajectory sample and logs how far off the robot is. */
+  public void trackTrajectory(Trajectory.State goal) {
+    long computeStart = Logger.getRealTimestamp();
+    Pose2d pose = getPose();
+    var wheelSpeeds = kinematics.toWheelSpeeds(ramsete.calculate(pose, goal));
+    driveVelocity(wheelSpeeds.leftMetersPerSecond, wheelSpeeds.rightMetersPerSecond);
+
+    Pose2d error = goal.poseMeters.relativeTo(pose);
+    Logger.recordOutput("Drive/Trajectory/Setpoint", goal.poseMeters);
+    Logger.recordOutput("Drive/Trajectory/AlongTrackErrorMeters", error.getX());
+    Logger.recordOutput("Drive/Trajectory/CrossTrackErrorMeters", error.getY());
+    Logger.recordOutput("Drive/Trajectory/HeadingErrorDeg", error.getRotation().getDegrees());
+    Logger.recordOutput(
+        "Drive/Trajectory/ComputeMs", (Logger.getRealTimestamp() - computeStart) / 1000.0);
+  }
+
   /** Returns the current odometry pose in meters. */
   @AutoLogOutput(key = "Odometry/Robot")
   public Pose2d getPose() {
@@ -136,25 +391,21 @@ public class Drive extends SubsystemBase {
   }
 
   /** Returns the position of the left wheels in meters. */
-  @AutoLogOutput
   public double getLeftPositionMeters() {
     return inputs.leftPositionRad * WHEEL_RADIUS;
   }
 
   /** Returns the position of the right wheels in meters. */
-  @AutoLogOutput
   public double getRightPositionMeters() {
     return inputs.rightPositionRad * WHEEL_RADIUS;
   }
 
   /** Returns the velocity of the left wheels in meters/second. */
-  @AutoLogOutput
   public double getLeftVelocityMetersPerSec() {
     return inputs.leftVelocityRadPerSec * WHEEL_RADIUS;
   }
 
   /** Returns the velocity of the right wheels in meters/second. */
-  @AutoLogOutput
   public double getRightVelocityMetersPerSec() {
     return inputs.rightVelocityRadPerSec * WHEEL_RADIUS;
   }
@@ -23,13 +23,17 @@ public interface DriveIO {
     public double leftVelocityRadPerSec = 0.0;
     public double leftAppliedVolts = 0.0;
     public double[] leftCurrentAmps = new double[] {};
+    public double[] leftTempCelsius = new double[] {};
 
     public double rightPositionRad = 0.0;
     public double rightVelocityRadPerSec = 0.0;
     public double rightAppliedVolts = 0.0;
     public double[] rightCurrentAmps = new double[] {};
+    public double[] rightTempCelsius = new double[] {};
 
     public Rotation2d gyroYaw = new Rotation2d();
+
+    public double batteryVoltage = 0.0;
   }
 
   /** Updates the set of loggable inputs. */
@@ -41,4 +45,7 @@ public interface DriveIO {
   /** Run closed loop at the specified velocity. */
   public default void setVelocity(
       double leftRadPerSec, double rightRadPerSec, double leftFFVolts, double rightFFVolts) {}
+
+  /** Sets the current limit of every drive motor. */
+  public default void setCurrentLimit(int amps) {}
 }
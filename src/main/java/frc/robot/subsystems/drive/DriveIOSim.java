@@ -15,14 +15,17 @@ package frc.robot.subsystems.drive;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
 import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim;
 import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim.KitbotGearing;
 import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim.KitbotMotor;
 import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim.KitbotWheelSize;
+import frc.robot.util.TunableNumber;
+import java.util.function.DoubleSupplier;
 
 public class DriveIOSim implements DriveIO {
-  private static final double KP = 0.2;
-  private static final double KD = 0.0;
+  private static final TunableNumber KP = new TunableNumber("Drive/Sim/KP", 0.2);
+  private static final TunableNumber KD = new TunableNumber("Drive/Sim/KD", 0.0);
   private DifferentialDrivetrainSim sim =
       DifferentialDrivetrainSim.createKitbotSim(
           KitbotMotor.kDualCIMPerSide, KitbotGearing.k10p71, KitbotWheelSize.kSixInch, null);
@@ -30,14 +33,28 @@ public class DriveIOSim implements DriveIO {
   private double leftAppliedVolts = 0.0;
   private double rightAppliedVolts = 0.0;
   private boolean closedLoop = false;
-  private PIDController leftPID = new PIDController(KP, 0.0, KD);
-  private PIDController rightPID = new PIDController(KP, 0.0, KD);
+  private final DoubleSupplier kP;
+  private final DoubleSupplier kD;
+  private final PIDController leftPID = new PIDController(0.0, 0.0, 0.0);
+  private final PIDController rightPID = new PIDController(0.0, 0.0, 0.0);
   private double leftFFVolts = 0.0;
   private double rightFFVolts = 0.0;
 
+  public DriveIOSim() {
+    this(KP::get, KD::get);
+  }
+
+  /** Creates a sim whose velocity gains are read from the suppliers every loop. */
+  public DriveIOSim(DoubleSupplier kP, DoubleSupplier kD) {
+    this.kP = kP;
+    this.kD = kD;
+  }
+
   @Override
   public void updateInputs(DriveIOInputs inputs) {
     if (closedLoop) {
+      leftPID.setPID(kP.getAsDouble(), 0.0, kD.getAsDouble());
+      rightPID.setPID(kP.getAsDouble(), 0.0, kD.getAsDouble());
       leftAppliedVolts =
           MathUtil.clamp(
               leftPID.calculate(sim.getLeftVelocityMetersPerSecond() / Drive.WHEEL_RADIUS)
@@ -46,7 +63,7 @@ public class DriveIOSim implements DriveIO {
               12.0);
       rightAppliedVolts =
           MathUtil.clamp(
-              leftPID.calculate(sim.getRightVelocityMetersPerSecond() / Drive.WHEEL_RADIUS)
+              rightPID.calculate(sim.getRightVelocityMetersPerSecond() / Drive.WHEEL_RADIUS)
                   + rightFFVolts,
               -12.0,
               12.0);
@@ -65,6 +82,13 @@ public class DriveIOSim implements DriveIO {
     inputs.rightCurrentAmps = new double[] {sim.getRightCurrentDrawAmps()};
 
     inputs.gyroYaw = sim.getHeading();
+
+    // The sim reports motor current, the battery only supplies it scaled by duty cycle
+    double supplyAmps =
+        (Math.abs(sim.getLeftCurrentDrawAmps() * leftAppliedVolts)
+                + Math.abs(sim.getRightCurrentDrawAmps() * rightAppliedVolts))
+            / 12.0;
+    inputs.batteryVoltage = BatterySim.calculateDefaultBatteryLoadedVoltage(supplyAmps);
   }
 
   @Override
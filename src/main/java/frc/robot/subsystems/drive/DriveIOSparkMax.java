@@ -13,10 +13,13 @@
 
 package frc.robot.subsystems.drive;
 
+import com.revrobotics.CANSparkBase.ControlType;
 import com.revrobotics.CANSparkLowLevel.MotorType;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkPIDController;
 import edu.wpi.first.math.util.Units;
+import frc.robot.util.TunableNumber;
 
 /**
  * NOTE: To use the Spark Flex / NEO Vortex, replace all instances of "CANSparkMax" with
@@ -25,6 +28,11 @@ import edu.wpi.first.math.util.Units;
 public class DriveIOSparkMax implements DriveIO {
   private static final double GEAR_RATIO =
       5; // Off by factor of 2 from output velocity, adjust to 5
+  // Velocity feedback on top of the feedforward from Drive, in duty cycle per motor RPM of error
+  private static final TunableNumber KP = new TunableNumber("Drive/KP", 0.0);
+  private static final TunableNumber KD = new TunableNumber("Drive/KD", 0.0);
+  // Motor temperature changes slowly, so it is only read every half second
+  private static final int TEMPERATURE_READ_PERIOD_CYCLES = 25;
 
   private final CANSparkMax leftFrontLeader = new CANSparkMax(5, MotorType.kBrushless);
   private final CANSparkMax leftCenterFollower = new CANSparkMax(6, MotorType.kBrushless);
@@ -47,13 +55,19 @@ public class DriveIOSparkMax implements DriveIO {
 
   private final RelativeEncoder leftEncoder = leftLeader.getEncoder();
   private final RelativeEncoder rightEncoder = rightLeader.getEncoder();
+  private final SparkPIDController leftPID = leftLeader.getPIDController();
+  private final SparkPIDController rightPID = rightLeader.getPIDController();
+
+  private int cyclesSinceTemperatureRead = TEMPERATURE_READ_PERIOD_CYCLES;
+  private double[] leftTempCelsius = new double[] {};
+  private double[] rightTempCelsius = new double[] {};
 
   public DriveIOSparkMax() {
     for (CANSparkMax motor : motors) {
       motor.restoreFactoryDefaults();
       motor.setCANTimeout(250);
       motor.enableVoltageCompensation(12.0);
-      motor.setSmartCurrentLimit(20);
+      motor.setSmartCurrentLimit((int) Drive.CURRENT_LIMIT_AMPS.get());
     }
 
     leftFrontLeader.setInverted(false);
@@ -63,12 +77,32 @@ public class DriveIOSparkMax implements DriveIO {
     rightCenterFollower.follow(rightFrontLeader, false);
     rightBackFollower.follow(rightFrontLeader, false);
 
+    leftPID.setP(KP.get());
+    leftPID.setD(KD.get());
+    rightPID.setP(KP.get());
+    rightPID.setD(KD.get());
+
     for (CANSparkMax motor : motors) {
       // Recommended by REV in order to ensure that new settings are not lost
       // during a brown-out scenario where the Spark Max loses power but the
       // RoboRio does not
       motor.burnFlash();
+      // Don't wait for acknowledgements once configured, so settings changed from the loop, like
+      // the derated current limit and retuned gains, never block it
+      motor.setCANTimeout(0);
     }
+
+    // Retuned gains are only sent to the controllers, not burned to flash
+    KP.onChange(
+        (kP) -> {
+          leftPID.setP(kP);
+          rightPID.setP(kP);
+        });
+    KD.onChange(
+        (kD) -> {
+          leftPID.setD(kD);
+          rightPID.setD(kD);
+        });
   }
 
   @Override
@@ -94,6 +128,26 @@ public class DriveIOSparkMax implements DriveIO {
           rightCenterFollower.getOutputCurrent(),
           rightBackFollower.getOutputCurrent()
         };
+
+    if (++cyclesSinceTemperatureRead >= TEMPERATURE_READ_PERIOD_CYCLES) {
+      cyclesSinceTemperatureRead = 0;
+      leftTempCelsius =
+          new double[] {
+            leftLeader.getMotorTemperature(),
+            leftCenterFollower.getMotorTemperature(),
+            leftBackFollower.getMotorTemperature()
+          };
+      rightTempCelsius =
+          new double[] {
+            rightLeader.getMotorTemperature(),
+            rightCenterFollower.getMotorTemperature(),
+            rightBackFollower.getMotorTemperature()
+          };
+    }
+    inputs.leftTempCelsius = leftTempCelsius;
+    inputs.rightTempCelsius = rightTempCelsius;
+
+    inputs.batteryVoltage = leftLeader.getBusVoltage();
   }
 
   @Override
@@ -104,5 +158,24 @@ public class DriveIOSparkMax implements DriveIO {
 
   @Override
   public void setVelocity(
-      double leftRadPerSec, double rightRadPerSec, double leftFFVolts, double rightFFVolts) {}
+      double leftRadPerSec, double rightRadPerSec, double leftFFVolts, double rightFFVolts) {
+    leftPID.setReference(
+        Units.radiansPerSecondToRotationsPerMinute(leftRadPerSec * GEAR_RATIO),
+        ControlType.kVelocity,
+        0,
+        leftFFVolts);
+    rightPID.setReference(
+        Units.radiansPerSecondToRotationsPerMinute(rightRadPerSec * GEAR_RATIO),
+        ControlType.kVelocity,
+        0,
+        rightFFVolts);
+  }
+
+  // Only sent to the controllers, not burned to flash
+  @Override
+  public void setCurrentLimit(int amps) {
+    for (CANSparkMax motor : motors) {
+      motor.setSmartCurrentLimit(amps);
+    }
+  }
 }
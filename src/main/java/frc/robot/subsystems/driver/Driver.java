@@ -0,0 +1,64 @@
+package frc.robot.subsystems.driver;
+
+import edu.wpi.first.wpilibj.XboxController;
+import edu.wpi.first.wpilibj.event.EventLoop;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Samples the driver controller once per loop into an immutable {@link DriverSnapshot} that
+ * everything else reads from. The snapshot is logged as an input, so replay sees exactly what the
+ * driver did. Button triggers are only evaluated on loops where a button actually changed.
+ */
+public class Driver extends SubsystemBase {
+  private final DriverIO io;
+  private final DriverIOInputsAutoLogged inputs = new DriverIOInputsAutoLogged();
+  private final EventLoop buttonLoop = new EventLoop();
+  private DriverSnapshot snapshot = new DriverSnapshot(inputs);
+
+  public Driver(DriverIO io) {
+    this.io = io;
+  }
+
+  @Override
+  public void periodic() {
+    io.updateInputs(inputs);
+    Logger.processInputs("Driver", inputs);
+
+    // Only make a new snapshot when something changed
+    boolean buttonsChanged = inputs.buttons != snapshot.buttons || inputs.pov != snapshot.pov;
+    if (buttonsChanged || !snapshot.axesMatch(inputs)) {
+      snapshot = new DriverSnapshot(inputs);
+    }
+    if (buttonsChanged) {
+      buttonLoop.poll();
+    }
+  }
+
+  /** Returns the controller state for this loop. */
+  public DriverSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /** Returns a trigger for the given button, numbered like {@code XboxController.Button}. */
+  public Trigger button(int button) {
+    return new Trigger(buttonLoop, () -> snapshot.isPressed(button));
+  }
+
+  public Trigger a() {
+    return button(XboxController.Button.kA.value);
+  }
+
+  public Trigger b() {
+    return button(XboxController.Button.kB.value);
+  }
+
+  public Trigger x() {
+    return button(XboxController.Button.kX.value);
+  }
+
+  public Trigger y() {
+    return button(XboxController.Button.kY.value);
+  }
+}
@@ -0,0 +1,22 @@
+package frc.robot.subsystems.driver;
+
+import org.littletonrobotics.junction.AutoLog;
+
+public interface DriverIO {
+
+  @AutoLog
+  public static class DriverIOInputs {
+    public double leftX = 0.0;
+    public double leftY = 0.0;
+    public double rightX = 0.0;
+    public double rightY = 0.0;
+    public double leftTrigger = 0.0;
+    public double rightTrigger = 0.0;
+    // Bit n - 1 is set when button n is pressed
+    public int buttons = 0;
+    public int pov = -1;
+  }
+
+  /** Updates the set of loggable inputs. */
+  public default void updateInputs(DriverIOInputs inputs) {}
+}
@@ -0,0 +1,27 @@
+package frc.robot.subsystems.driver;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.XboxController;
+
+public class DriverIOXbox implements DriverIO {
+  private final int port;
+  private final XboxController controller;
+
+  public DriverIOXbox(int port) {
+    this.port = port;
+    this.controller = new XboxController(port);
+  }
+
+  @Override
+  public void updateInputs(DriverIOInputs inputs) {
+    inputs.leftX = controller.getLeftX();
+    inputs.leftY = controller.getLeftY();
+    inputs.rightX = controller.getRightX();
+    inputs.rightY = controller.getRightY();
+    inputs.leftTrigger = controller.getLeftTriggerAxis();
+    inputs.rightTrigger = controller.getRightTriggerAxis();
+    // Every button in one read instead of one per binding
+    inputs.buttons = DriverStation.getStickButtons(port);
+    inputs.pov = controller.getPOV();
+  }
+}
@@ -0,0 +1,39 @@
+package frc.robot.subsystems.driver;
+
+/** The state of the driver controller for a single loop. */
+public final class DriverSnapshot {
+  public final double leftX;
+  public final double leftY;
+  public final double rightX;
+  public final double rightY;
+  public final double leftTrigger;
+  public final double rightTrigger;
+  public final int buttons;
+  public final int pov;
+
+  DriverSnapshot(DriverIO.DriverIOInputs inputs) {
+    leftX = inputs.leftX;
+    leftY = inputs.leftY;
+    rightX = inputs.rightX;
+    rightY = inputs.rightY;
+    leftTrigger = inputs.leftTrigger;
+    rightTrigger = inputs.rightTrigger;
+    buttons = inputs.buttons;
+    pov = inputs.pov;
+  }
+
+  /** Returns whether the button is pressed, numbered from 1 like {@code XboxController.Button}. */
+  public boolean isPressed(int button) {
+    return (buttons & (1 << (button - 1))) != 0;
+  }
+
+  /** Returns whether the axes are the same as in the inputs. */
+  boolean axesMatch(DriverIO.DriverIOInputs inputs) {
+    return leftX == inputs.leftX
+        && leftY == inputs.leftY
+        && rightX == inputs.rightX
+        && rightY == inputs.rightY
+        && leftTrigger == inputs.leftTrigger
+        && rightTrigger == inputs.rightTrigger;
+  }
+}
@@ -0,0 +1,90 @@
+package frc.robot.util;
+
+/**
+ * Estimates the battery's open circuit voltage and internal resistance online from the bus voltage
+ * and total current draw, fitting {@code V = Voc - R * I} with recursive least squares. This is
+ * enough to predict how far the voltage will sag for a given current, and to total up the energy
+ * used so that batteries can be compared.
+ */
+public class BatteryModel {
+  private static final double NOMINAL_OPEN_CIRCUIT_VOLTS = 12.6;
+  private static final double NOMINAL_RESISTANCE_OHMS = 0.02;
+  private static final double MIN_RESISTANCE_OHMS = 0.005;
+  private static final double MAX_RESISTANCE_OHMS = 0.1;
+  // Older samples are weighted down by this each update so the estimate follows the battery
+  private static final double FORGETTING_FACTOR = 0.995;
+  // Stop forgetting once the covariance gets this large, otherwise it winds up while current is
+  // steady and the next current spike throws the estimate around
+  private static final double MAX_COVARIANCE_TRACE = 100.0;
+  // Below this the voltage reading is not real (e.g. no IO in replay)
+  private static final double MIN_VALID_VOLTS = 1.0;
+
+  private double openCircuitVolts = NOMINAL_OPEN_CIRCUIT_VOLTS;
+  private double resistanceOhms = NOMINAL_RESISTANCE_OHMS;
+  // Covariance of [Voc, R]
+  private double p00 = 1.0;
+  private double p01 = 0.0;
+  private double p11 = 0.01;
+
+  private double lastTimestampSecs = Double.NaN;
+  private double energyJoules = 0.0;
+  private double chargeCoulombs = 0.0;
+
+  /** Adds a new measurement of bus voltage against the total current being drawn. */
+  public void update(double busVolts, double totalAmps, double timestampSecs) {
+    double dt = Double.isNaN(lastTimestampSecs) ? 0.0 : timestampSecs - lastTimestampSecs;
+    lastTimestampSecs = timestampSecs;
+    if (busVolts < MIN_VALID_VOLTS) {
+      return;
+    }
+
+    energyJoules += busVolts * totalAmps * dt;
+    chargeCoulombs += totalAmps * dt;
+
+    // Regressor is [1, -I] for V = Voc - R * I
+    double pPhi0 = p00 - p01 * totalAmps;
+    double pPhi1 = p01 - p11 * totalAmps;
+    double lambda = p00 + p11 > MAX_COVARIANCE_TRACE ? 1.0 : FORGETTING_FACTOR;
+    double denominator = lambda + pPhi0 - totalAmps * pPhi1;
+    double gain0 = pPhi0 / denominator;
+    double gain1 = pPhi1 / denominator;
+
+    double error = busVolts - predictVolts(totalAmps);
+    openCircuitVolts += gain0 * error;
+    resistanceOhms += gain1 * error;
+    resistanceOhms = Math.max(MIN_RESISTANCE_OHMS, Math.min(MAX_RESISTANCE_OHMS, resistanceOhms));
+
+    p00 = (p00 - gain0 * pPhi0) / lambda;
+    p01 = (p01 - gain0 * pPhi1) / lambda;
+    p11 = (p11 - gain1 * pPhi1) / lambda;
+  }
+
+  /** Returns the bus voltage expected if the given total current was drawn. */
+  public double predictVolts(double totalAmps) {
+    return openCircuitVolts - resistanceOhms * totalAmps;
+  }
+
+  public double getOpenCircuitVolts() {
+    return openCircuitVolts;
+  }
+
+  public double getResistanceOhms() {
+    return resistanceOhms;
+  }
+
+  /** Returns the energy drawn since the last reset in watt hours. */
+  public double getEnergyWattHours() {
+    return energyJoules / 3600.0;
+  }
+
+  /** Returns the charge drawn since the last reset in amp hours. */
+  public double getChargeAmpHours() {
+    return chargeCoulombs / 3600.0;
+  }
+
+  /** Starts counting energy and charge from zero, e.g. at the start of a match. */
+  public void resetUsage() {
+    energyJoules = 0.0;
+    chargeCoulombs = 0.0;
+  }
+}
@@ -0,0 +1,43 @@
+package frc.robot.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Records how far into the boot each startup phase completed, measured from process launch. Phases
+ * can be marked before the logger has started, so they are buffered and written out by {@link
+ * #flush()} from the periodic loop.
+ */
+public final class BootTimer {
+  private static final long processStartMillis =
+      ProcessHandle.current()
+          .info()
+          .startInstant()
+          .map((instant) -> instant.toEpochMilli())
+          .orElse(System.currentTimeMillis());
+  private static final Map<String, Double> pendingPhases = new LinkedHashMap<>();
+
+  private BootTimer() {}
+
+  /** Returns the milliseconds elapsed since the robot process was launched. */
+  public static double getUptimeMs() {
+    return System.currentTimeMillis() - processStartMillis;
+  }
+
+  /** Marks the given boot phase as complete at the current time. */
+  public static void mark(String phase) {
+    pendingPhases.put(phase, getUptimeMs());
+  }
+
+  /** Logs any phases marked since the last flush. Must be called after the logger has started. */
+  public static void flush() {
+    if (pendingPhases.isEmpty()) {
+      return;
+    }
+    for (var phase : pendingPhases.entrySet()) {
+      Logger.recordOutput("Boot/" + phase.getKey() + "Ms", phase.getValue());
+    }
+    pendingPhases.clear();
+  }
+}
@@ -0,0 +1,154 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.wpilibj.DriverStation;
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Watches how much of each 20ms loop the robot code uses and sheds non-essential work one tier at a
+ * time when it keeps running over budget. Drive control and odometry are never shed. The tier is
+ * logged as an input so replay degrades on exactly the same loops as the robot did.
+ */
+public final class LoopGovernor {
+  /** Each tier also sheds everything the tiers before it did. */
+  public enum Tier {
+    NOMINAL,
+    /** NetworkTables only gets every {@link #REDUCED_PUBLISH_DIVISOR}th loop. */
+    REDUCED_PUBLISHING,
+    /** Diagnostic outputs that aren't needed for driving are not logged. */
+    NO_DIAGNOSTICS,
+    /** Arm SysId state is not logged. */
+    NO_SYSID_LOGGING
+  }
+
+  private static final double PERIOD_MS = 20.0;
+  // Step down a tier when the average load stays above this, and back up when below the other
+  private static final double DEGRADE_LOAD_MS = 16.0;
+  private static final double RECOVER_LOAD_MS = 10.0;
+  private static final int DEGRADE_CYCLES = 5;
+  private static final int RECOVER_CYCLES = 50;
+  private static final int REDUCED_PUBLISH_DIVISOR = 5;
+
+  private static final LinearFilter loadFilter = LinearFilter.movingAverage(10);
+  private static Tier tier = Tier.NOMINAL;
+  // Boot loops are slow for reasons that have nothing to do with steady state load, so loops
+  // aren't counted until startup work has finished
+  private static boolean monitoringRequested = false;
+  private static boolean monitoring = false;
+  private static int cyclesOverBudget = 0;
+  private static int cyclesUnderBudget = 0;
+  private static long lastCycleStartMicros = 0;
+  private static long cycleStartMicros = 0;
+
+  // Read from the logger's receiver thread
+  private static volatile int publishDivisor = 1;
+
+  private static final LoggableInputs inputs =
+      new LoggableInputs() {
+        @Override
+        public void toLog(LogTable table) {
+          table.put("Tier", tier.name());
+        }
+
+        @Override
+        public void fromLog(LogTable table) {
+          tier = Tier.valueOf(table.get("Tier", tier.name()));
+        }
+      };
+
+  private LoopGovernor() {}
+
+  /** Wraps a data receiver so that it is skipped on some loops once publishing is reduced. */
+  public static LogDataReceiver throttle(LogDataReceiver receiver) {
+    return new LogDataReceiver() {
+      private int cycle = 0;
+
+      @Override
+      public void start() {
+        receiver.start();
+      }
+
+      @Override
+      public void end() {
+        receiver.end();
+      }
+
+      @Override
+      public void putTable(LogTable table) throws InterruptedException {
+        if (++cycle >= publishDivisor) {
+          cycle = 0;
+          receiver.putTable(table);
+        }
+      }
+    };
+  }
+
+  /** Returns whether diagnostic outputs should be logged this loop. */
+  public static boolean isDiagnosticsEnabled() {
+    return tier.compareTo(Tier.NO_DIAGNOSTICS) < 0;
+  }
+
+  /** Returns whether SysId state should be logged this loop. */
+  public static boolean isSysIdLoggingEnabled() {
+    return tier.compareTo(Tier.NO_SYSID_LOGGING) < 0;
+  }
+
+  /**
+   * Starts counting loops towards the load from the next loop on. Call once the startup work done
+   * in the periodic loop has finished. The overrun of the loop this is called from is not counted.
+   */
+  public static void startMonitoring() {
+    monitoringRequested = true;
+  }
+
+  /** Call at the very start of the periodic loop. */
+  public static void startCycle() {
+    lastCycleStartMicros = monitoring ? cycleStartMicros : 0;
+    monitoring = monitoringRequested;
+    cycleStartMicros = Logger.getRealTimestamp();
+    Logger.processInputs("LoopGovernor", inputs);
+    publishDivisor = tier == Tier.NOMINAL ? 1 : REDUCED_PUBLISH_DIVISOR;
+  }
+
+  /** Call at the very end of the periodic loop, picks the tier for the next loop. */
+  public static void endCycle() {
+    if (!monitoring) {
+      return;
+    }
+    double busyMs = (Logger.getRealTimestamp() - cycleStartMicros) / 1000.0;
+    // An overrun of the last loop shows up as a longer gap between loop starts
+    double overrunMs =
+        lastCycleStartMicros == 0
+            ? 0.0
+            : Math.max(0.0, (cycleStartMicros - lastCycleStartMicros) / 1000.0 - PERIOD_MS);
+    double loadMs = loadFilter.calculate(busyMs + overrunMs);
+    Logger.recordOutput("LoopGovernor/LoadMs", loadMs);
+    if (Logger.hasReplaySource()) {
+      // The tier comes from the log instead
+      return;
+    }
+
+    cyclesOverBudget = loadMs > DEGRADE_LOAD_MS ? cyclesOverBudget + 1 : 0;
+    cyclesUnderBudget = loadMs < RECOVER_LOAD_MS ? cyclesUnderBudget + 1 : 0;
+    Tier[] tiers = Tier.values();
+    if (cyclesOverBudget >= DEGRADE_CYCLES && tier.ordinal() < tiers.length - 1) {
+      setTier(tiers[tier.ordinal() + 1], loadMs);
+    } else if (cyclesUnderBudget >= RECOVER_CYCLES && tier.ordinal() > 0) {
+      setTier(tiers[tier.ordinal() - 1], loadMs);
+    }
+  }
+
+  private static void setTier(Tier newTier, double loadMs) {
+    String event = String.format("%s -> %s (load %.1fms)", tier, newTier, loadMs);
+    Logger.recordOutput("LoopGovernor/Event", event);
+    if (newTier.compareTo(tier) > 0) {
+      DriverStation.reportWarning("Loop overrunning, degrading: " + event, false);
+    }
+    tier = newTier;
+    cyclesOverBudget = 0;
+    cyclesUnderBudget = 0;
+  }
+}
@@ -0,0 +1,81 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/**
+ * Lumped thermal model of one motor, {@code C dT/dt = I^2 R - (T - T_ambient) / R_thermal}, driven
+ * by the measured current every loop. The motor controller's temperature sensor is slow and coarse,
+ * so it only pulls the estimate towards it gradually. The model is used to predict where the
+ * temperature is heading and derate the current limit before the motor gets there.
+ */
+public class MotorThermalModel {
+  private static final double AMBIENT_CELSIUS = 25.0;
+  // Rough values for a NEO, about a 3 minute time constant
+  private static final double THERMAL_CAPACITY_JOULES_PER_KELVIN = 150.0;
+  private static final double THERMAL_RESISTANCE_KELVIN_PER_WATT = 1.2;
+  // Fraction of the difference to the sensor reading that is corrected per second
+  private static final double SENSOR_CORRECTION_PER_SEC = 0.1;
+  // Readings at or below this mean there is no sensor (sim or replay without IO)
+  private static final double MIN_VALID_SENSOR_CELSIUS = 1.0;
+
+  // How far ahead to look when deciding whether to derate
+  private static final double PREDICTION_HORIZON_SECS = 10.0;
+  // The current limit scale ramps linearly from 1 at the start temperature down to the minimum
+  private static final double DERATE_START_CELSIUS = 70.0;
+  private static final double DERATE_END_CELSIUS = 100.0;
+  private static final double MIN_DERATE_SCALE = 0.4;
+
+  private final double windingResistanceOhms;
+  private double temperatureCelsius = AMBIENT_CELSIUS;
+  private double lastTimestampSecs = Double.NaN;
+  private double lastCurrentAmps = 0.0;
+
+  public MotorThermalModel(DCMotor motor) {
+    this.windingResistanceOhms = motor.rOhms;
+  }
+
+  /** Steps the model forward with the latest current and sensor reading. */
+  public void update(double currentAmps, double sensorCelsius, double timestampSecs) {
+    double dt = Double.isNaN(lastTimestampSecs) ? 0.0 : timestampSecs - lastTimestampSecs;
+    lastTimestampSecs = timestampSecs;
+    lastCurrentAmps = currentAmps;
+
+    double heatWatts = currentAmps * currentAmps * windingResistanceOhms;
+    double coolingWatts =
+        (temperatureCelsius - AMBIENT_CELSIUS) / THERMAL_RESISTANCE_KELVIN_PER_WATT;
+    temperatureCelsius += (heatWatts - coolingWatts) / THERMAL_CAPACITY_JOULES_PER_KELVIN * dt;
+
+    if (sensorCelsius > MIN_VALID_SENSOR_CELSIUS) {
+      temperatureCelsius +=
+          (sensorCelsius - temperatureCelsius) * Math.min(1.0, SENSOR_CORRECTION_PER_SEC * dt);
+    }
+  }
+
+  /** Returns the estimated temperature now. */
+  public double getTemperatureCelsius() {
+    return temperatureCelsius;
+  }
+
+  /** Returns the temperature expected after the horizon if the current stays where it is. */
+  public double getPredictedCelsius() {
+    double steadyStateCelsius =
+        AMBIENT_CELSIUS
+            + lastCurrentAmps
+                * lastCurrentAmps
+                * windingResistanceOhms
+                * THERMAL_RESISTANCE_KELVIN_PER_WATT;
+    double timeConstantSecs =
+        THERMAL_CAPACITY_JOULES_PER_KELVIN * THERMAL_RESISTANCE_KELVIN_PER_WATT;
+    return steadyStateCelsius
+        + (temperatureCelsius - steadyStateCelsius)
+            * Math.exp(-PREDICTION_HORIZON_SECS / timeConstantSecs);
+  }
+
+  /** Returns how much to scale the current limit by, from 1 down to the minimum as it heats up. */
+  public double getDerateScale() {
+    double hottestCelsius = Math.max(temperatureCelsius, getPredictedCelsius());
+    double fraction =
+        (hottestCelsius - DERATE_START_CELSIUS) / (DERATE_END_CELSIUS - DERATE_START_CELSIUS);
+    return 1.0 - (1.0 - MIN_DERATE_SCALE) * Math.max(0.0, Math.min(1.0, fraction));
+  }
+}
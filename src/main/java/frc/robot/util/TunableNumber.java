@@ -0,0 +1,84 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A number that can be changed from NetworkTables while the robot is running. Reading it is a plain
+ * field read, new values are only picked up once per loop by {@link TunableParameters#periodic()},
+ * which then notifies the listeners that need to reconfigure something.
+ */
+public class TunableNumber {
+  private final String key;
+  private final double defaultValue;
+  private final List<DoubleConsumer> listeners = new ArrayList<>();
+
+  private volatile double value;
+  // Written from the NetworkTables listener thread, applied on the next loop
+  private volatile double pendingValue;
+  // The pending value read once at the start of a loop, this is what is logged and applied
+  private double latchedValue;
+
+  /**
+   * Creates a new tunable number.
+   *
+   * @param key The key under "/Tuning" in NetworkTables and the log
+   * @param defaultValue The value used until it is changed from the dashboard
+   */
+  public TunableNumber(String key, double defaultValue) {
+    this.key = key;
+    this.defaultValue = defaultValue;
+    this.value = defaultValue;
+    this.pendingValue = defaultValue;
+    this.latchedValue = defaultValue;
+    TunableParameters.register(this);
+  }
+
+  /** Returns the current value. */
+  public double get() {
+    return value;
+  }
+
+  /** Calls the listener with the new value every time this number is changed. */
+  public void onChange(DoubleConsumer listener) {
+    listeners.add(listener);
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  double getDefault() {
+    return defaultValue;
+  }
+
+  void setPending(double pendingValue) {
+    this.pendingValue = pendingValue;
+  }
+
+  /** Takes the single read of the pending value that this loop logs and applies. */
+  void latchPending() {
+    latchedValue = pendingValue;
+  }
+
+  double getLatched() {
+    return latchedValue;
+  }
+
+  void setLatched(double latchedValue) {
+    this.latchedValue = latchedValue;
+  }
+
+  /** Applies the latched value, returning whether it changed anything. */
+  boolean applyLatched() {
+    if (latchedValue == value) {
+      return false;
+    }
+    value = latchedValue;
+    for (DoubleConsumer listener : listeners) {
+      listener.accept(latchedValue);
+    }
+    return true;
+  }
+}
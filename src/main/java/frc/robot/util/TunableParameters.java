@@ -0,0 +1,71 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Keeps every {@link TunableNumber} in sync with NetworkTables. The values are logged as inputs, so
+ * in replay they come back from the log at exactly the loop they were changed on the robot.
+ */
+public final class TunableParameters {
+  private static final String TABLE = "/Tuning/";
+  private static final List<TunableNumber> parameters = new ArrayList<>();
+
+  private static final LoggableInputs inputs =
+      new LoggableInputs() {
+        @Override
+        public void toLog(LogTable table) {
+          for (TunableNumber parameter : parameters) {
+            table.put(parameter.getKey(), parameter.getLatched());
+          }
+        }
+
+        @Override
+        public void fromLog(LogTable table) {
+          for (TunableNumber parameter : parameters) {
+            parameter.setLatched(table.get(parameter.getKey(), parameter.getLatched()));
+          }
+        }
+      };
+
+  private TunableParameters() {}
+
+  static synchronized void register(TunableNumber parameter) {
+    parameters.add(parameter);
+    if (!Constants.tuningMode || Constants.currentMode == Mode.REPLAY) {
+      return;
+    }
+
+    NetworkTableInstance nt = NetworkTableInstance.getDefault();
+    DoubleEntry entry = nt.getDoubleTopic(TABLE + parameter.getKey()).getEntry(0.0);
+    entry.set(parameter.getDefault());
+    nt.addListener(
+        entry,
+        EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+        (event) -> parameter.setPending(event.valueData.value.getDouble()));
+  }
+
+  /** Applies any values changed since the last loop. Call once per loop, before the scheduler. */
+  public static synchronized void periodic() {
+    // Read each pending value exactly once, so the value applied is the one that was logged even
+    // if the dashboard changes it again part way through the loop
+    for (TunableNumber parameter : parameters) {
+      parameter.latchPending();
+    }
+    Logger.processInputs("Tuning", inputs);
+    for (TunableNumber parameter : parameters) {
+      if (parameter.applyLatched()) {
+        Logger.recordOutput("Tuning/LastChanged", parameter.getKey());
+      }
+    }
+  }
+}
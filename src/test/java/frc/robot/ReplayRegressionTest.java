@@ -0,0 +1,298 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.Constants.Mode;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+/**
+ * Replays every log in replay/corpus through the robot code and compares the outputs against the
+ * golden results in replay/golden, so that changes to the drive or arm logic that shift behavior
+ * are caught. AdvantageKit only replays one log per process and exits once it runs out, so each
+ * log is replayed by running the robot program in its own JVM.
+ *
+ * <p>To add a log, copy a short match log, or a simulator session from logs/ (run the robot with
+ * {@code -Drobot.mode=SIM}), into replay/corpus. Then run {@code ./gradlew test -PupdateGoldens} to
+ * write its golden from the current code; this also rewrites every other golden.
+ *
+ * <p>Each replay must also run at least {@code replay.minSpeedup} times faster than the robot's
+ * loop, so the robot code doesn't quietly get slower. Pass {@code -PreplayMinSpeedup=0} to skip
+ * that check on a slow machine.
+ */
+class ReplayRegressionTest {
+  private static final Path CORPUS = Path.of("replay", "corpus");
+  private static final Path GOLDENS = Path.of("replay", "golden");
+  private static final long REPLAY_TIMEOUT_MINUTES = 5;
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  // Generous, the robot code only needs a few ms of each 20 ms loop even on the roboRIO
+  private static final double DEFAULT_MIN_SPEEDUP = 5.0;
+  // The first cycles load classes and warm up the JIT, so they are left out of the throughput
+  private static final int WARMUP_CYCLES = 50;
+
+  // Outputs that are compared, with how far each value may drift from the golden result
+  private static final Map<String, Double> TOLERANCES = new LinkedHashMap<>();
+
+  static {
+    TOLERANCES.put("Odometry/Robot", 1e-4);
+    TOLERANCES.put("Arm/GoalDeg", 1e-6);
+    TOLERANCES.put("Drive/LeftSetpointVolts", 1e-6);
+    TOLERANCES.put("Drive/RightSetpointVolts", 1e-6);
+  }
+
+  private static final String CYCLE_TIME_KEY = "LoggedRobot/FullCycleMS";
+  private static final String OUTPUT_PREFIX = "ReplayOutputs/";
+
+  @TestFactory
+  Stream<DynamicTest> replayedOutputsMatchGoldens() throws IOException {
+    List<Path> logs;
+    try (Stream<Path> paths = Files.list(CORPUS)) {
+      logs =
+          paths
+              .filter(
+                  (path) -> {
+                    String name = path.toString();
+                    return name.endsWith(".wpilog") && !name.endsWith("_sim.wpilog");
+                  })
+              .sorted()
+              .toList();
+    }
+    if (logs.isEmpty()) {
+      // Report a skip rather than passing with nothing checked
+      return Stream.of(
+          DynamicTest.dynamicTest(
+              "corpus",
+              () ->
+                  Assumptions.abort(
+                      "No logs in " + CORPUS + " to replay, see ReplayRegressionTest to add one")));
+    }
+    return logs.stream()
+        .map((log) -> DynamicTest.dynamicTest(log.getFileName().toString(), () -> check(log)));
+  }
+
+  private static void check(Path log) throws Exception {
+    String name = log.getFileName().toString().replace(".wpilog", "");
+    Path replayed = log.resolveSibling(name + "_sim.wpilog");
+    Path golden = GOLDENS.resolve(name + ".csv");
+
+    Files.deleteIfExists(replayed);
+    replay(log);
+    assertTrue(Files.exists(replayed), "No replayed log at " + replayed);
+
+    ReplayOutputs outputs = ReplayOutputs.read(replayed);
+    assertTrue(
+        outputs.measuredCycles > 0,
+        name + " is too short to measure, logs need more than " + WARMUP_CYCLES + " cycles");
+    double speedup = outputs.throughputCyclesPerSec * LOOP_PERIOD_SECS;
+    double minSpeedup =
+        Double.parseDouble(
+            System.getProperty("replay.minSpeedup", String.valueOf(DEFAULT_MIN_SPEEDUP)));
+    System.out.printf(
+        "%s replayed at %.0f cycles/s, %.1fx real time%n",
+        name, outputs.throughputCyclesPerSec, speedup);
+    assertTrue(
+        speedup >= minSpeedup,
+        String.format(
+            "%s replayed at %.1fx real time, expected at least %.1fx", name, speedup, minSpeedup));
+
+    if (Boolean.getBoolean("replay.updateGoldens")) {
+      Files.createDirectories(GOLDENS);
+      outputs.write(golden);
+      return;
+    }
+    assertTrue(
+        Files.exists(golden), "No golden result at " + golden + ", run with -PupdateGoldens");
+    List<String> problems = outputs.compareTo(ReplayOutputs.read(golden));
+    assertTrue(problems.isEmpty(), String.join("\n", problems));
+  }
+
+  /** Runs the robot program in replay mode on the given log, in a separate JVM. */
+  private static void replay(Path log) throws IOException, InterruptedException {
+    ProcessBuilder builder =
+        new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-Djava.library.path=" + System.getProperty("java.library.path"),
+            "-Drobot.mode=" + Mode.REPLAY,
+            "-cp",
+            System.getProperty("java.class.path"),
+            Main.class.getName());
+    builder.environment().put("AKIT_LOG_PATH", log.toAbsolutePath().toString());
+    builder.inheritIO();
+
+    Process process = builder.start();
+    if (!process.waitFor(REPLAY_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+      process.destroyForcibly();
+      fail("Replay of " + log + " did not finish within " + REPLAY_TIMEOUT_MINUTES + " minutes");
+    }
+  }
+
+  /** The compared outputs of one replayed log. */
+  private static final class ReplayOutputs {
+    private final Map<String, List<Sample>> series = new LinkedHashMap<>();
+    private int measuredCycles = 0;
+    private double throughputCyclesPerSec = 0.0;
+
+    private record Sample(long timestamp, double[] values) {}
+
+    /** Reads a replayed WPILOG file, or a golden CSV file written by {@link #write(Path)}. */
+    static ReplayOutputs read(Path path) throws IOException {
+      ReplayOutputs outputs = new ReplayOutputs();
+      for (String key : TOLERANCES.keySet()) {
+        outputs.series.put(key, new ArrayList<>());
+      }
+      if (path.toString().endsWith(".csv")) {
+        outputs.readCsv(path);
+      } else {
+        outputs.readLog(path);
+      }
+      return outputs;
+    }
+
+    private void readLog(Path path) throws IOException {
+      DataLogReader reader = new DataLogReader(path.toString());
+      if (!reader.isValid()) {
+        throw new IOException("Not a valid WPILOG file: " + path);
+      }
+
+      Map<Integer, String> keys = new HashMap<>();
+      Map<Integer, String> types = new HashMap<>();
+      double cycleTimeMs = 0.0;
+      int cycles = 0;
+      for (DataLogRecord record : reader) {
+        if (record.isStart()) {
+          var start = record.getStartData();
+          int prefixIndex = start.name.indexOf(OUTPUT_PREFIX);
+          if (prefixIndex >= 0) {
+            keys.put(start.entry, start.name.substring(prefixIndex + OUTPUT_PREFIX.length()));
+            types.put(start.entry, start.type);
+          }
+          continue;
+        }
+        if (record.isControl()) {
+          continue;
+        }
+        String key = keys.get(record.getEntry());
+        if (key == null) {
+          continue;
+        }
+
+        if (key.equals(CYCLE_TIME_KEY)) {
+          if (++cycles > WARMUP_CYCLES) {
+            cycleTimeMs += record.getDouble();
+          }
+        } else if (series.containsKey(key)) {
+          series
+              .get(key)
+              .add(new Sample(record.getTimestamp(), decode(record, types.get(record.getEntry()))));
+        }
+      }
+      measuredCycles = Math.max(0, cycles - WARMUP_CYCLES);
+      throughputCyclesPerSec = cycleTimeMs > 0.0 ? measuredCycles / (cycleTimeMs / 1000.0) : 0.0;
+    }
+
+    private static double[] decode(DataLogRecord record, String type) {
+      if (type.equals("double")) {
+        return new double[] {record.getDouble()};
+      }
+      if (type.equals("double[]")) {
+        return record.getDoubleArray();
+      }
+      // Structs here are all made of doubles (Pose2d is x, y, rotation)
+      ByteBuffer buffer = ByteBuffer.wrap(record.getRaw()).order(ByteOrder.LITTLE_ENDIAN);
+      double[] values = new double[buffer.remaining() / Double.BYTES];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = buffer.getDouble();
+      }
+      return values;
+    }
+
+    private void readCsv(Path path) throws IOException {
+      for (String line : Files.readAllLines(path)) {
+        String[] fields = line.split(",");
+        double[] values = new double[fields.length - 2];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = Double.parseDouble(fields[i + 2]);
+        }
+        series
+            .computeIfAbsent(fields[0], (key) -> new ArrayList<>())
+            .add(new Sample(Long.parseLong(fields[1]), values));
+      }
+    }
+
+    void write(Path path) throws IOException {
+      try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+        for (var entry : series.entrySet()) {
+          for (Sample sample : entry.getValue()) {
+            StringBuilder line = new StringBuilder(entry.getKey()).append(',');
+            line.append(sample.timestamp());
+            for (double value : sample.values()) {
+              line.append(',').append(value);
+            }
+            writer.println(line);
+          }
+        }
+      }
+    }
+
+    /** Returns a description of everything that differs from the golden result. */
+    List<String> compareTo(ReplayOutputs golden) {
+      List<String> problems = new ArrayList<>();
+      for (var tolerance : TOLERANCES.entrySet()) {
+        String key = tolerance.getKey();
+        List<Sample> actual = series.getOrDefault(key, List.of());
+        List<Sample> expected = golden.series.getOrDefault(key, List.of());
+        if (actual.size() != expected.size()) {
+          problems.add(
+              String.format("%s: %d samples, expected %d", key, actual.size(), expected.size()));
+          continue;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+          String mismatch = compareSample(actual.get(i), expected.get(i), tolerance.getValue());
+          if (mismatch != null) {
+            // Only the first mismatch, everything after it has usually diverged too
+            problems.add(key + ": " + mismatch);
+            break;
+          }
+        }
+      }
+      return problems;
+    }
+
+    private static String compareSample(Sample actual, Sample expected, double tolerance) {
+      if (actual.timestamp() != expected.timestamp()) {
+        return String.format(
+            "sample at %d us, expected %d us", actual.timestamp(), expected.timestamp());
+      }
+      if (actual.values().length != expected.values().length) {
+        return String.format(
+            "%d values at %d us, expected %d",
+            actual.values().length, actual.timestamp(), expected.values().length);
+      }
+      for (int i = 0; i < actual.values().length; i++) {
+        if (Math.abs(actual.values()[i] - expected.values()[i]) > tolerance) {
+          return String.format(
+              "%f at %d us, expected %f",
+              actual.values()[i], actual.timestamp(), expected.values()[i]);
+        }
+      }
+      return null;
+    }
+  }
+}
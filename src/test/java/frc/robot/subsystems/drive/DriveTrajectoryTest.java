@@ -0,0 +1,124 @@
+package frc.robot.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Follows paths on the simulated drive, stepping the robot clock one loop at a time. */
+class DriveTrajectoryTest {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  // Gains that suit the simulated kitbot drive
+  private static final double SIM_KP = 0.2;
+  private static final double SIM_KV = 0.227;
+  private static final double MAX_FINAL_ERROR_METERS = 0.15;
+  private static final double MAX_LATE_ARRIVAL_SECS = 5 * LOOP_PERIOD_SECS;
+  // How long to keep watching after the path ends, to make sure the robot stops where it should
+  private static final double SETTLE_SECS = 0.5;
+
+  private Drive drive;
+
+  @BeforeEach
+  void setup() {
+    assertTrue(HAL.initialize(500, 0));
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    SimHooks.pauseTiming();
+    drive =
+        new Drive(
+            new DriveIOSim(() -> SIM_KP, () -> 0.0),
+            () -> 0.0,
+            () -> SIM_KV,
+            RobotController::getFPGATime);
+  }
+
+  @AfterEach
+  void shutdown() {
+    CommandScheduler.getInstance().cancelAll();
+    CommandScheduler.getInstance().unregisterAllSubsystems();
+    SimHooks.resumeTiming();
+  }
+
+  @Test
+  void followsStraightPath() {
+    runPath(
+        TrajectoryGenerator.generateTrajectory(
+            new Pose2d(),
+            List.of(new Translation2d(1.5, 0.0)),
+            new Pose2d(3.0, 0.0, new Rotation2d()),
+            drive.getTrajectoryConfig()));
+  }
+
+  @Test
+  void followsSCurve() {
+    runPath(
+        TrajectoryGenerator.generateTrajectory(
+            new Pose2d(),
+            List.of(new Translation2d(1.5, 0.5), new Translation2d(3.0, -0.5)),
+            new Pose2d(4.5, 0.0, new Rotation2d()),
+            drive.getTrajectoryConfig()));
+  }
+
+  @Test
+  void followsPathInReverse() {
+    runPath(
+        TrajectoryGenerator.generateTrajectory(
+            new Pose2d(),
+            List.of(new Translation2d(-1.0, -0.3)),
+            new Pose2d(-2.0, -0.6, new Rotation2d()),
+            drive.getTrajectoryConfig().setReversed(true)));
+  }
+
+  /**
+   * Runs the follower command and lets the robot roll to a stop afterwards, then checks when it
+   * reached the end of the path. Like the sim harness, the robot has only arrived once it is within
+   * tolerance of the end pose, and here it also has to stay there.
+   */
+  private void runPath(Trajectory path) {
+    drive.setPose(path.getInitialPose());
+    Pose2d end = path.sample(path.getTotalTimeSeconds()).poseMeters;
+    Command command = drive.followTrajectoryCommand(path);
+    CommandScheduler.getInstance().schedule(command);
+
+    double runSecs = path.getTotalTimeSeconds() + SETTLE_SECS;
+    double time = 0.0;
+    double arrivalSecs = Double.NaN;
+    while (time < runSecs) {
+      SimHooks.stepTiming(LOOP_PERIOD_SECS);
+      CommandScheduler.getInstance().run();
+      time += LOOP_PERIOD_SECS;
+
+      double errorMeters = end.getTranslation().getDistance(drive.getPose().getTranslation());
+      if (errorMeters >= MAX_FINAL_ERROR_METERS) {
+        arrivalSecs = Double.NaN;
+      } else if (Double.isNaN(arrivalSecs)) {
+        arrivalSecs = time;
+      }
+    }
+
+    assertFalse(command.isScheduled(), "Path follower never finished");
+    double errorMeters = end.getTranslation().getDistance(drive.getPose().getTranslation());
+    assertFalse(
+        Double.isNaN(arrivalSecs),
+        String.format("Ended %.3f m from the end of the path", errorMeters));
+    assertTrue(
+        arrivalSecs <= path.getTotalTimeSeconds() + MAX_LATE_ARRIVAL_SECS,
+        String.format(
+            "Reached the end of a %.2f s path after %.2f s",
+            path.getTotalTimeSeconds(), arrivalSecs));
+  }
+}
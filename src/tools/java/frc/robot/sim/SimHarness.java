@@ -0,0 +1,119 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import frc.robot.subsystems.drive.Drive;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many {@link SimRobot}s at once, sweeping the drive gains and arm dead zone across them, and
+ * prints how each set of parameters did along with the overall simulation throughput. Each robot
+ * writes its own log to the log directory.
+ *
+ * <p>Run with {@code ./gradlew simHarness -Pinstances=<count> -PdriverSecs=<seconds>
+ * -PsimLogDir=<directory>}.
+ */
+public final class SimHarness {
+  private static final double[] KP_VALUES = {0.1, 0.2, 0.4};
+  private static final double[] KV_VALUES = {0.2, 0.227, 0.25};
+  private static final double[] ARM_DEAD_ZONE_VALUES = {1.5, 3.0, 5.0};
+
+  private SimHarness() {}
+
+  public static void main(String... args) throws Exception {
+    int instances = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    double driverSecs = args.length > 1 ? Double.parseDouble(args[1]) : 135.0;
+    String logDirectory = args.length > 2 ? args[2] : "build/simHarness";
+    int threads =
+        args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    Files.createDirectories(Path.of(logDirectory));
+
+    HAL.initialize(500, 0);
+    Trajectory path =
+        TrajectoryGenerator.generateTrajectory(
+            new Pose2d(),
+            List.of(new Translation2d(1.5, 0.5), new Translation2d(3.0, -0.5)),
+            new Pose2d(4.5, 0.0, new Rotation2d()),
+            new TrajectoryConfig(Drive.MAX_TRAJECTORY_VELOCITY, Drive.MAX_TRAJECTORY_ACCELERATION)
+                .setKinematics(new DifferentialDriveKinematics(Drive.TRACK_WIDTH)));
+
+    List<Callable<SimRobot.Result>> runs = new ArrayList<>();
+    for (int i = 0; i < instances; i++) {
+      SimRobot.Parameters parameters = getSweepParameters(i);
+      long seed = i;
+      String logName = String.format("robot-%04d.wpilog", i);
+      runs.add(() -> new SimRobot(parameters, seed, logDirectory, logName).run(path, driverSecs));
+    }
+
+    long startNanos = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<SimRobot.Result> results = new ArrayList<>();
+    for (Future<SimRobot.Result> future : executor.invokeAll(runs)) {
+      results.add(future.get());
+    }
+    executor.shutdown();
+    double wallSecs = (System.nanoTime() - startNanos) / 1e9;
+
+    printSummary(results);
+    long loops = results.stream().mapToLong((result) -> result.loops).sum();
+    double cpuSecs = results.stream().mapToLong((result) -> result.cpuNanos).sum() / 1e9;
+    System.out.printf(
+        "%d robots, %d loops in %.2f s on %d threads: %.0f loops/s, %.0f loops/s per core%n",
+        results.size(), loops, wallSecs, threads, loops / wallSecs, loops / cpuSecs);
+
+    // NetworkTables keeps non-daemon threads running
+    System.exit(0);
+  }
+
+  /** Cycles through every combination of the swept values. */
+  private static SimRobot.Parameters getSweepParameters(int index) {
+    int kPIndex = index % KP_VALUES.length;
+    int kVIndex = (index / KP_VALUES.length) % KV_VALUES.length;
+    int deadZoneIndex =
+        (index / (KP_VALUES.length * KV_VALUES.length)) % ARM_DEAD_ZONE_VALUES.length;
+    return new SimRobot.Parameters(
+        KP_VALUES[kPIndex], KV_VALUES[kVIndex], ARM_DEAD_ZONE_VALUES[deadZoneIndex]);
+  }
+
+  private static void printSummary(List<SimRobot.Result> results) {
+    Map<String, List<SimRobot.Result>> byParameters = new LinkedHashMap<>();
+    for (SimRobot.Result result : results) {
+      byParameters
+          .computeIfAbsent(result.parameters.toString(), (key) -> new ArrayList<>())
+          .add(result);
+    }
+
+    for (var entry : byParameters.entrySet()) {
+      List<SimRobot.Result> group = entry.getValue();
+      int armMoves = group.stream().mapToInt((result) -> result.armMoves).sum();
+      System.out.printf(
+          "%s (%d runs): path %.2f s, final error mean %.3f m max %.3f m, "
+              + "arm settle mean %.2f s max %.2f s, %d unsettled moves%n",
+          entry.getKey(),
+          group.size(),
+          group.stream().mapToDouble((result) -> result.pathCompletionSecs).average().orElse(0.0),
+          group.stream().mapToDouble((result) -> result.pathFinalErrorMeters).average().orElse(0.0),
+          group.stream().mapToDouble((result) -> result.pathFinalErrorMeters).max().orElse(0.0),
+          armMoves > 0
+              ? group.stream().mapToDouble((result) -> result.armSettleTotalSecs).sum() / armMoves
+              : 0.0,
+          group.stream().mapToDouble((result) -> result.armSettleMaxSecs).max().orElse(0.0),
+          group.stream().mapToInt((result) -> result.armMovesUnsettled).sum());
+    }
+  }
+}
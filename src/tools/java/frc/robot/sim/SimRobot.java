@@ -0,0 +1,225 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.util.sendable.SendableRegistry;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants;
+import frc.robot.subsystems.arm.Arm;
+import frc.robot.subsystems.arm.ArmIOSim;
+import frc.robot.subsystems.arm.ArmPreset;
+import frc.robot.subsystems.arm.ArmStateMachine;
+import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.drive.DriveIOSim;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * One simulated robot (drive and arm) that steps its own subsystems instead of going through the
+ * command scheduler, so many of them can run on separate threads at the same time. The global
+ * logger is never started. Instead each robot has its own simulated clock, which its subsystems
+ * read instead of the FPGA time, and writes its own WPILOG file using the same keys as the robot
+ * so the logs can be read with the usual tools.
+ */
+public class SimRobot {
+  public static final double LOOP_PERIOD_SECS = 0.02;
+  // Stop following the path if the robot hasn't reached the end this long after it should have
+  private static final double PATH_TIMEOUT_SECS = 2.0;
+  private static final double PATH_TOLERANCE_METERS = 0.15;
+
+  // The scheduler and sendable registry aren't thread safe, so robots are built one at a time
+  private static final Object constructionLock = new Object();
+
+  private final Parameters parameters;
+  private final Random random;
+  private final Drive drive;
+  private final Arm arm;
+  private final ArmStateMachine armStateMachine;
+  private long clockMicros = 0;
+
+  private final DataLog log;
+  private final StructLogEntry<Pose2d> poseEntry;
+  private final DoubleLogEntry throttleEntry;
+  private final DoubleLogEntry turnEntry;
+  private final DoubleLogEntry armGoalEntry;
+  private final DoubleLogEntry armPositionEntry;
+  private final DoubleLogEntry armCurrentEntry;
+
+  /**
+   * Creates a new simulated robot.
+   *
+   * @param parameters The values to run with
+   * @param seed Seeds the random driver inputs
+   * @param logDirectory Where this robot's log is written
+   * @param logName The file name of this robot's log
+   */
+  public SimRobot(Parameters parameters, long seed, String logDirectory, String logName) {
+    this.parameters = parameters;
+    this.random = new Random(seed);
+
+    log = new DataLog(logDirectory, logName);
+    poseEntry = StructLogEntry.create(log, "Odometry/Robot", Pose2d.struct);
+    throttleEntry = new DoubleLogEntry(log, "SimDriver/Throttle");
+    turnEntry = new DoubleLogEntry(log, "SimDriver/Turn");
+    armGoalEntry = new DoubleLogEntry(log, "Arm/GoalDeg");
+    armPositionEntry = new DoubleLogEntry(log, "Arm/ArmPositionDeg");
+    armCurrentEntry = new DoubleLogEntry(log, "Arm/ArmCurrentAmps");
+
+    synchronized (constructionLock) {
+      drive =
+          new Drive(
+              new DriveIOSim(() -> parameters.kP, () -> 0.0),
+              () -> 0.0,
+              () -> parameters.kV,
+              () -> clockMicros);
+      arm =
+          new Arm(
+              new ArmIOSim(() -> parameters.armDeadZoneDeg, () -> Constants.armAppliedVolts),
+              () -> parameters.armDeadZoneDeg,
+              () -> clockMicros);
+      armStateMachine = new ArmStateMachine(arm);
+
+      // These are stepped directly, keep them out of the global scheduler and dashboard
+      CommandScheduler.getInstance().unregisterSubsystem(drive, arm);
+      SendableRegistry.remove(drive);
+      SendableRegistry.remove(arm);
+    }
+  }
+
+  /** Follows the path, then drives randomly for the given time, and returns the results. */
+  public Result run(Trajectory path, double driverSecs) {
+    var threadBean = ManagementFactory.getThreadMXBean();
+    long startCpuNanos = threadBean.getCurrentThreadCpuTime();
+
+    Result result = new Result(parameters);
+    runPath(path, result);
+    runDriver(driverSecs, result);
+    log.close();
+
+    result.cpuNanos = threadBean.getCurrentThreadCpuTime() - startCpuNanos;
+    return result;
+  }
+
+  private void step(Result result) {
+    clockMicros += (long) (LOOP_PERIOD_SECS * 1e6);
+    drive.periodic();
+    arm.periodic();
+    poseEntry.append(drive.getPose(), clockMicros);
+    armPositionEntry.append(arm.getPositionDeg(), clockMicros);
+    armCurrentEntry.append(arm.getCurrentAmps(), clockMicros);
+    result.loops++;
+  }
+
+  private void runPath(Trajectory path, Result result) {
+    drive.setPose(path.getInitialPose());
+    Pose2d end = path.sample(path.getTotalTimeSeconds()).poseMeters;
+    double endSecs = path.getTotalTimeSeconds() + PATH_TIMEOUT_SECS;
+
+    double time = 0.0;
+    while (time < endSecs) {
+      step(result);
+      drive.trackTrajectory(path.sample(time));
+      time += LOOP_PERIOD_SECS;
+      if (time >= path.getTotalTimeSeconds() && getDistance(end) < PATH_TOLERANCE_METERS) {
+        break;
+      }
+    }
+    drive.stop();
+
+    result.pathCompletionSecs = time;
+    result.pathFinalErrorMeters = getDistance(end);
+  }
+
+  private void runDriver(double driverSecs, Result result) {
+    ArmPreset[] presets = ArmPreset.values();
+    double throttle = 0.0;
+    double turn = 0.0;
+    int stickLoopsLeft = 0;
+    ArmPreset armGoal = ArmPreset.STOW;
+    int armLoopsLeft = 0;
+    int armMoveLoops = 0;
+    boolean armSettled = true;
+
+    int loops = (int) (driverSecs / LOOP_PERIOD_SECS);
+    for (int i = 0; i < loops; i++) {
+      step(result);
+
+      // Hold each stick position and arm goal for a random time, like a driver would
+      if (--stickLoopsLeft <= 0) {
+        throttle = random.nextDouble() * 2.0 - 1.0;
+        turn = random.nextDouble() * 2.0 - 1.0;
+        stickLoopsLeft = 10 + random.nextInt(65);
+      }
+      if (--armLoopsLeft <= 0) {
+        if (!armSettled) {
+          result.armMovesUnsettled++;
+        }
+        armGoal = presets[random.nextInt(presets.length)];
+        armLoopsLeft = 50 + random.nextInt(100);
+        armMoveLoops = 0;
+        armSettled = false;
+      }
+
+      drive.driveArcade(throttle, turn);
+      armStateMachine.runToward(armGoal);
+      throttleEntry.append(throttle, clockMicros);
+      turnEntry.append(turn, clockMicros);
+      armGoalEntry.append(armGoal.positionDeg, clockMicros);
+
+      armMoveLoops++;
+      if (!armSettled && !armStateMachine.isTransitioning()) {
+        armSettled = true;
+        result.addArmSettle(armMoveLoops * LOOP_PERIOD_SECS);
+      }
+    }
+    drive.stop();
+  }
+
+  private double getDistance(Pose2d target) {
+    return drive.getPose().getTranslation().getDistance(target.getTranslation());
+  }
+
+  /** The values being swept across robots. */
+  public static final class Parameters {
+    public final double kP;
+    public final double kV;
+    public final double armDeadZoneDeg;
+
+    public Parameters(double kP, double kV, double armDeadZoneDeg) {
+      this.kP = kP;
+      this.kV = kV;
+      this.armDeadZoneDeg = armDeadZoneDeg;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("kP=%.3f kV=%.3f deadZone=%.1f", kP, kV, armDeadZoneDeg);
+    }
+  }
+
+  /** What happened to a single robot. */
+  public static final class Result {
+    public final Parameters parameters;
+    public long loops = 0;
+    public long cpuNanos = 0;
+    public double pathCompletionSecs = 0.0;
+    public double pathFinalErrorMeters = 0.0;
+    public int armMoves = 0;
+    public int armMovesUnsettled = 0;
+    public double armSettleTotalSecs = 0.0;
+    public double armSettleMaxSecs = 0.0;
+
+    Result(Parameters parameters) {
+      this.parameters = parameters;
+    }
+
+    void addArmSettle(double settleSecs) {
+      armMoves++;
+      armSettleTotalSecs += settleSecs;
+      armSettleMaxSecs = Math.max(armSettleMaxSecs, settleSecs);
+    }
+  }
+}
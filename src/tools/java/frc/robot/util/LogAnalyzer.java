@@ -0,0 +1,280 @@
+package frc.robot.util;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.Constants;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line tool that summarizes every WPILOG file in a directory, one match per file. Files are
+ * memory mapped by {@link DataLogReader} and analyzed in parallel, and only the records for the
+ * entries we care about are ever decoded.
+ *
+ * <p>Arm moves count as settled once the arm is within the dead zone of its goal. The dead zone is
+ * read from each log as it was tuned during the match, falling back to the one given on the
+ * command line, or the default in {@link Constants}, for logs from before it was tunable.
+ *
+ * <p>Run with {@code ./gradlew analyzeLogs -PlogDir=<directory> [-ParmDeadZone=<degrees>]}.
+ */
+public final class LogAnalyzer {
+  // Odometry jumps larger than this between samples are pose resets, not driving
+  private static final double MAX_POSE_STEP_METERS = 1.0;
+
+  private LogAnalyzer() {}
+
+  public static void main(String... args) throws IOException {
+    Path directory = Path.of(args.length > 0 ? args[0] : "logs");
+    double defaultArmDeadZoneDeg =
+        args.length > 1 ? Double.parseDouble(args[1]) : Constants.armDeadZone;
+    long startNanos = System.nanoTime();
+
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(directory)) {
+      files = paths.filter((path) -> path.toString().endsWith(".wpilog")).sorted().toList();
+    }
+    // Parallel streams keep encounter order, so the summaries stay sorted by file name
+    List<MatchSummary> summaries =
+        files.parallelStream()
+            .map((file) -> analyze(file, defaultArmDeadZoneDeg))
+            .collect(Collectors.toList());
+
+    for (MatchSummary summary : summaries) {
+      summary.print();
+    }
+    System.out.printf(
+        "Analyzed %d logs in %.2f s%n", summaries.size(), (System.nanoTime() - startNanos) / 1e9);
+  }
+
+  /** Reads one log file start to finish and builds its summary. */
+  private static MatchSummary analyze(Path file, double defaultArmDeadZoneDeg) {
+    MatchSummary summary = new MatchSummary(file.getFileName().toString(), defaultArmDeadZoneDeg);
+    DataLogReader reader;
+    try {
+      reader = new DataLogReader(file.toString());
+    } catch (IOException e) {
+      summary.error = e.getMessage();
+      return summary;
+    }
+    if (!reader.isValid()) {
+      summary.error = "Not a valid WPILOG file";
+      return summary;
+    }
+
+    Map<Integer, Field> fields = new HashMap<>();
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        var start = record.getStartData();
+        Field field = Field.fromName(start.name);
+        if (field != null) {
+          fields.put(start.entry, field);
+          if (field == Field.ODOMETRY) {
+            summary.odometryIsStruct = start.type.startsWith("struct:");
+          }
+        }
+        continue;
+      }
+      if (record.isControl()) {
+        continue;
+      }
+      Field field = fields.get(record.getEntry());
+      if (field != null) {
+        summary.accept(field, record);
+      }
+    }
+    return summary;
+  }
+
+  /** The log entries the summary is built from, matched by the end of their key. */
+  private enum Field {
+    LOOP_TIME("LoggedRobot/FullCycleMS"),
+    DRIVE_LEFT_CURRENT("Drive/LeftCurrentAmps"),
+    DRIVE_RIGHT_CURRENT("Drive/RightCurrentAmps"),
+    ARM_CURRENT("Arm/ArmCurrentAmps"),
+    ARM_POSITION("Arm/ArmPositionDeg"),
+    ARM_GOAL("Arm/GoalDeg"),
+    ARM_DEAD_ZONE("Tuning/Arm/DeadZoneDeg"),
+    ODOMETRY("Odometry/Robot"),
+    BROWNED_OUT("SystemStats/BrownedOut"),
+    BATTERY_VOLTAGE("SystemStats/BatteryVoltage");
+
+    private final String keySuffix;
+
+    Field(String keySuffix) {
+      this.keySuffix = keySuffix;
+    }
+
+    static Field fromName(String name) {
+      for (Field field : values()) {
+        if (name.endsWith(field.keySuffix)) {
+          return field;
+        }
+      }
+      return null;
+    }
+  }
+
+  /** Running totals for a single match. */
+  private static final class MatchSummary {
+    private final String name;
+    private String error = null;
+
+    private double[] loopTimesMs = new double[4096];
+    private int loopCount = 0;
+
+    private final Map<String, Double> peakCurrents = new TreeMap<>();
+
+    private double armDeadZoneDeg;
+    private double armGoalDeg = Double.NaN;
+    private long armGoalChangedMicros = 0;
+    private boolean armSettled = true;
+    private final List<Double> armSettleSecs = new ArrayList<>();
+
+    private boolean odometryIsStruct = true;
+    private double lastX = Double.NaN;
+    private double lastY = Double.NaN;
+    private double distanceMeters = 0.0;
+
+    private boolean brownedOut = false;
+    private int brownoutCount = 0;
+    private double minBatteryVolts = Double.POSITIVE_INFINITY;
+
+    MatchSummary(String name, double armDeadZoneDeg) {
+      this.name = name;
+      this.armDeadZoneDeg = armDeadZoneDeg;
+    }
+
+    void accept(Field field, DataLogRecord record) {
+      switch (field) {
+        case LOOP_TIME:
+          if (loopCount == loopTimesMs.length) {
+            loopTimesMs = Arrays.copyOf(loopTimesMs, loopCount * 2);
+          }
+          loopTimesMs[loopCount++] = record.getDouble();
+          break;
+
+        case DRIVE_LEFT_CURRENT:
+          recordPeaks("DriveLeft", record.getDoubleArray());
+          break;
+
+        case DRIVE_RIGHT_CURRENT:
+          recordPeaks("DriveRight", record.getDoubleArray());
+          break;
+
+        case ARM_CURRENT:
+          peakCurrents.merge("Arm", Math.abs(record.getDouble()), Math::max);
+          break;
+
+        case ARM_GOAL:
+          double goal = record.getDouble();
+          if (goal != armGoalDeg) {
+            armGoalDeg = goal;
+            armGoalChangedMicros = record.getTimestamp();
+            armSettled = false;
+          }
+          break;
+
+        case ARM_DEAD_ZONE:
+          armDeadZoneDeg = record.getDouble();
+          break;
+
+        case ARM_POSITION:
+          if (!armSettled && Math.abs(record.getDouble() - armGoalDeg) <= armDeadZoneDeg) {
+            armSettled = true;
+            armSettleSecs.add((record.getTimestamp() - armGoalChangedMicros) / 1e6);
+          }
+          break;
+
+        case ODOMETRY:
+          recordPose(record);
+          break;
+
+        case BROWNED_OUT:
+          boolean browned = record.getBoolean();
+          if (browned && !brownedOut) {
+            brownoutCount++;
+          }
+          brownedOut = browned;
+          break;
+
+        case BATTERY_VOLTAGE:
+          minBatteryVolts = Math.min(minBatteryVolts, record.getDouble());
+          break;
+      }
+    }
+
+    private void recordPeaks(String prefix, double[] currents) {
+      for (int i = 0; i < currents.length; i++) {
+        peakCurrents.merge(prefix + i, Math.abs(currents[i]), Math::max);
+      }
+    }
+
+    private void recordPose(DataLogRecord record) {
+      double x;
+      double y;
+      if (odometryIsStruct) {
+        // Pose2d struct is x, y, then rotation, as little endian doubles
+        ByteBuffer buffer = ByteBuffer.wrap(record.getRaw()).order(ByteOrder.LITTLE_ENDIAN);
+        x = buffer.getDouble(0);
+        y = buffer.getDouble(8);
+      } else {
+        double[] pose = record.getDoubleArray();
+        x = pose[0];
+        y = pose[1];
+      }
+      if (!Double.isNaN(lastX)) {
+        double step = Math.hypot(x - lastX, y - lastY);
+        if (step < MAX_POSE_STEP_METERS) {
+          distanceMeters += step;
+        }
+      }
+      lastX = x;
+      lastY = y;
+    }
+
+    void print() {
+      System.out.println("== " + name);
+      if (error != null) {
+        System.out.println("  Error: " + error);
+        return;
+      }
+
+      if (loopCount > 0) {
+        double[] sorted = Arrays.copyOf(loopTimesMs, loopCount);
+        Arrays.sort(sorted);
+        System.out.printf(
+            "  Loop time ms: mean %.2f, p50 %.2f, p99 %.2f, max %.2f (%d cycles)%n",
+            Arrays.stream(sorted).average().orElse(0.0),
+            sorted[loopCount / 2],
+            sorted[Math.min(loopCount - 1, (int) (loopCount * 0.99))],
+            sorted[loopCount - 1],
+            loopCount);
+      }
+      for (var peak : peakCurrents.entrySet()) {
+        System.out.printf("  Peak current %s: %.1f A%n", peak.getKey(), peak.getValue());
+      }
+      if (!armSettleSecs.isEmpty()) {
+        System.out.printf(
+            "  Arm settle s: mean %.2f, max %.2f (%d moves)%n",
+            armSettleSecs.stream().mapToDouble(Double::doubleValue).average().orElse(0.0),
+            armSettleSecs.stream().mapToDouble(Double::doubleValue).max().orElse(0.0),
+            armSettleSecs.size());
+      }
+      System.out.printf("  Distance driven: %.1f m%n", distanceMeters);
+      System.out.printf(
+          "  Brownouts: %d, min battery %.2f V%n",
+          brownoutCount, minBatteryVolts == Double.POSITIVE_INFINITY ? 0.0 : minBatteryVolts);
+    }
+  }
+}